@@ -0,0 +1,65 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Shared fixtures for the JMH benchmarks
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Create an event store by benchmark parameter name
+     * @param name one of list, ring or concurrent
+     * @param capacity maximum number of events
+     * @return the new store
+     */
+    static EventStore createStore(String name, int capacity) {
+        EventStore store;
+        switch (name) {
+            case "list":
+                store = new ListEventStore(new ArrayList<>());
+                break;
+            case "ring":
+                store = new RingBufferEventStore();
+                break;
+            case "concurrent":
+                store = new ConcurrentRingEventStore();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown store: " + name);
+        }
+        store.setCapacity(capacity);
+        return store;
+    }
+
+    /**
+     * Create a logging event with a fixed logger
+     * @param level the event level
+     * @param message the event message
+     * @return the new event
+     */
+    static LoggingEvent createEvent(Level level, String message) {
+        Logger logger = Logger.getLogger("assign251_2.benchmark.Service");
+        return new LoggingEvent(Logger.class.getName(), logger,
+                System.currentTimeMillis(), level, message, null);
+    }
+
+    /**
+     * Create an appender holding the given number of distinct events
+     * @param size number of events to append
+     * @return the filled appender
+     */
+    static MemAppender createFilledAppender(int size) {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(size));
+        for (int i = 0; i < size; i++) {
+            appender.doAppend(createEvent(i % 10 == 0 ? Level.WARN : Level.INFO, "Buffered message " + i));
+        }
+        return appender;
+    }
+}
@@ -0,0 +1,71 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of MemAppender.getEventStrings by buffer size, pattern and number
+ * of fork-join workers; parallelism 1 is the sequential path
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class EventStringsBenchmark {
+
+    @Param({"10000", "100000"})
+    int events;
+
+    @Param({"$m$n", "#if($p == \"ERROR\")!! #end$p $m$n"})
+    String pattern;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    private MemAppender appender;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        appender = new MemAppender(new RingBufferEventStore(events));
+        appender.setLayout(new VelocityLayout(pattern));
+        for (int i = 0; i < events; i++) {
+            appender.doAppend(BenchmarkSupport.createEvent(i % 10 == 0 ? Level.ERROR : Level.INFO, "Message " + i));
+        }
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+            appender.setFormatPool(pool);
+            appender.setParallelFormatThreshold(1);
+        } else {
+            appender.setParallelFormatThreshold(0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<String> getEventStrings() {
+        return appender.getEventStrings();
+    }
+}
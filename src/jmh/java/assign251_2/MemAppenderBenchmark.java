@@ -0,0 +1,66 @@
+package assign251_2;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Append throughput and latency of MemAppender per storage engine,
+ * buffer size and number of producer threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemAppenderBenchmark {
+
+    @Param({"1000", "50000", "200000"})
+    int maxSize;
+
+    @Param({"list", "ring", "concurrent"})
+    String store;
+
+    private MemAppender appender;
+    private LoggingEvent event;
+
+    @Setup
+    public void setUp() {
+        appender = new MemAppender(BenchmarkSupport.createStore(store, maxSize));
+        event = BenchmarkSupport.createEvent(Level.INFO, "Benchmark message");
+        for (int i = 0; i < maxSize; i++) {
+            appender.doAppend(event); // start from a full buffer so every append evicts
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void appendSingleThread() {
+        appender.doAppend(event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendFourThreads() {
+        appender.doAppend(event);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void appendSixteenThreads() {
+        appender.doAppend(event);
+    }
+}
@@ -0,0 +1,50 @@
+package assign251_2;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of JMX attribute reads on MemAppenderMonitor through the platform MBean server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorBenchmark {
+
+    @Param({"1000", "50000"})
+    int size;
+
+    @Param({"CurrentSize", "DiscardedLogCount", "EstimatedSize", "LogMessages"})
+    String attribute;
+
+    private MBeanServer server;
+    private ObjectName name;
+
+    @Setup
+    public void setUp() throws Exception {
+        MemAppenderMonitor.createMonitor(BenchmarkSupport.createFilledAppender(size), "Benchmark");
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName("assign251_2:type=MemAppenderMonitor,name=Benchmark");
+    }
+
+    @Benchmark
+    public Object readAttribute() throws Exception {
+        return server.getAttribute(name, attribute);
+    }
+}
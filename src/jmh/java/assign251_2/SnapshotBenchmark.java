@@ -0,0 +1,49 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reading the whole buffer through getCurrentLogs and getEventStrings
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"1000", "50000"})
+    int size;
+
+    private MemAppender appender;
+
+    @Setup
+    public void setUp() {
+        appender = BenchmarkSupport.createFilledAppender(size);
+        appender.setLayout(new VelocityLayout("[$p] $c: $m$n"));
+    }
+
+    @Benchmark
+    public List<LoggingEvent> getCurrentLogs() {
+        return appender.getCurrentLogs();
+    }
+
+    @Benchmark
+    public List<String> getEventStrings() {
+        return appender.getEventStrings();
+    }
+}
@@ -0,0 +1,63 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looking up a request id through the inverted index against a linear scan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TextSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private MemAppender indexed;
+    private MemAppender scanned;
+    private String requestId;
+
+    @Setup
+    public void setUp() {
+        indexed = createAppender(true);
+        scanned = createAppender(false);
+        requestId = "req-" + (size / 2);
+    }
+
+    @Benchmark
+    public List<LoggingEvent> indexedSearch() {
+        return indexed.search(requestId, 0);
+    }
+
+    @Benchmark
+    public List<LoggingEvent> linearScan() {
+        return scanned.search(requestId, 0);
+    }
+
+    private MemAppender createAppender(boolean textIndexed) {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(size));
+        appender.setTextIndexed(textIndexed);
+        for (int i = 0; i < size; i++) {
+            appender.doAppend(BenchmarkSupport.createEvent(Level.INFO,
+                    "Handled request req-" + i + " for user " + (i % 500) + " in " + (i % 40) + "ms"));
+        }
+        return appender;
+    }
+}
@@ -0,0 +1,65 @@
+package assign251_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of VelocityLayout.format and encode per pattern and date format
+ * formatToBytes is the String-then-bytes path encode replaces
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VelocityLayoutBenchmark {
+
+    @Param({"$m$n", "[$p] $c $d: $m$n", "$c|$d|$m|$p|$t$n", "#if($p == \"ERROR\")!! #end$p $m$n"})
+    String pattern;
+
+    @Param({"DEFAULT", "ISO8601"})
+    String dateFormat;
+
+    private VelocityLayout layout;
+    private LoggingEvent event;
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    @Setup
+    public void setUp() {
+        layout = new VelocityLayout(pattern);
+        layout.setDateFormat(dateFormat);
+        layout.warmUp();
+        event = BenchmarkSupport.createEvent(Level.INFO, "Benchmark message");
+    }
+
+    @Benchmark
+    public String format() {
+        return layout.format(event);
+    }
+
+    @Benchmark
+    public byte[] formatToBytes() {
+        return layout.format(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int encode() {
+        buffer.clear();
+        return layout.encode(event, buffer);
+    }
+}
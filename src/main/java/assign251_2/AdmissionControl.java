@@ -0,0 +1,300 @@
+package assign251_2;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Admission stage run by MemAppender before an event is captured or stored
+ * Three independent checks, all off by default:
+ * <ul>
+ * <li>a token bucket per level, e.g. at most 1000 DEBUG events per second
+ * with bursts of 100</li>
+ * <li>a token bucket per logger, with the same rate and burst for every
+ * logger; past MAX_LOGGER_BUCKETS loggers, new loggers share one bucket</li>
+ * <li>adaptive sampling of events below a level: the input rate of those
+ * events is measured every 100 ms and the keep rate for the next window is
+ * set to target rate / input rate, so a hot loop is thinned out in
+ * proportion to how fast it logs</li>
+ * </ul>
+ * Buckets are single AtomicLongs updated by compare-and-set (the generic
+ * cell rate algorithm), sampling uses ThreadLocalRandom and counters are
+ * LongAdders, so admit takes no lock and allocates nothing once every
+ * logger has its bucket. Suppressed events are counted per level and by reason.
+ */
+public final class AdmissionControl {
+
+    /** Number of loggers given a bucket of their own */
+    public static final int MAX_LOGGER_BUCKETS = 1024;
+
+    static final long WINDOW_NANOS = 100_000_000L; // sampling rate window
+    static final long MAX_AHEAD_NANOS = Long.MAX_VALUE / 4; // caps interval and tolerance, so nanoTime differences can't wrap
+
+    private final LongSupplier clock;
+    private volatile boolean active;
+    private final TokenBucket[] levelBuckets = new TokenBucket[LevelPartitionedEventStore.LEVELS.length];
+    private final ConcurrentHashMap<String, TokenBucket> loggerBuckets = new ConcurrentHashMap<>();
+    private volatile TokenBucket loggerOverflow; // template and shared bucket, null when loggers are not limited
+    private volatile double samplingTarget; // kept events per second, 0 when sampling is off
+    private volatile Level samplingThreshold = Level.WARN;
+    private volatile double keepRate = 1.0;
+    private final AtomicLong windowStart;
+    private final LongAdder windowCount = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder[] suppressedByLevel = new LongAdder[LevelPartitionedEventStore.LEVELS.length];
+
+    /**
+     * Create an admission stage that lets every event through
+     */
+    public AdmissionControl() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Create an admission stage with its own clock
+     * @param clock source of System.nanoTime style timestamps
+     */
+    AdmissionControl(LongSupplier clock) {
+        this.clock = clock;
+        this.windowStart = new AtomicLong(clock.getAsLong());
+        for (int i = 0; i < suppressedByLevel.length; i++) {
+            suppressedByLevel[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Decide whether an event may enter the buffer
+     * @param event the logging event
+     * @return false if the event is suppressed
+     */
+    boolean admit(LoggingEvent event) {
+        if (!active) {
+            return true;
+        }
+        long now = clock.getAsLong();
+        int slot = LevelPartitionedEventStore.slotOf(event.getLevel());
+        if (samplingTarget > 0 && !event.getLevel().isGreaterOrEqual(samplingThreshold) && !sample(now)) {
+            sampledOut.increment();
+            suppressedByLevel[slot].increment();
+            return false;
+        }
+        TokenBucket levelBucket = levelBuckets[slot];
+        boolean admitted = levelBucket == null || levelBucket.tryAcquire(now);
+        if (admitted && !admitLogger(event.getLoggerName(), now)) {
+            if (levelBucket != null) {
+                levelBucket.release(); // refused by its logger, so the level keeps its token
+            }
+            admitted = false;
+        }
+        if (!admitted) {
+            rateLimited.increment();
+            suppressedByLevel[slot].increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Limit the rate of events of one level
+     * @param level the level, custom levels share the limit of the standard level below them
+     * @param perSecond events admitted per second, or 0 to remove the limit
+     * @param burst events admitted at once after a quiet period
+     */
+    public synchronized void setLevelRateLimit(Level level, double perSecond, int burst) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        levelBuckets[LevelPartitionedEventStore.slotOf(level)] = bucket(perSecond, burst);
+        updateActive();
+    }
+
+    /**
+     * Limit the rate of events of every logger, each logger on its own bucket
+     * @param perSecond events admitted per second and logger, or 0 to remove the limit
+     * @param burst events admitted at once after a quiet period
+     */
+    public synchronized void setLoggerRateLimit(double perSecond, int burst) {
+        loggerOverflow = bucket(perSecond, burst);
+        loggerBuckets.clear();
+        updateActive();
+    }
+
+    /**
+     * Sample events below a level at a rate that adapts to their input rate
+     * @param perSecond events to keep per second, or 0 to stop sampling
+     * @param threshold events at this level or above are never sampled
+     */
+    public synchronized void setSampling(double perSecond, Level threshold) {
+        if (perSecond < 0 || Double.isNaN(perSecond)) {
+            throw new IllegalArgumentException("Sampling rate cannot be negative");
+        }
+        if (threshold == null) {
+            throw new IllegalArgumentException("Threshold cannot be null");
+        }
+        samplingThreshold = threshold;
+        samplingTarget = perSecond;
+        keepRate = 1.0;
+        updateActive();
+    }
+
+    /**
+     * Get the fraction of sampled events kept in the current window
+     * @return keep rate between 0 and 1, 1 while sampling is off
+     */
+    public double getKeepRate() {
+        return samplingTarget > 0 ? keepRate : 1.0;
+    }
+
+    /**
+     * Get number of events suppressed for any reason
+     * @return suppressed event count
+     */
+    public long getSuppressedCount() {
+        return rateLimited.sum() + sampledOut.sum();
+    }
+
+    /**
+     * Get number of events suppressed of one level
+     * @param level the level, custom levels are counted with the standard level below them
+     * @return suppressed event count of that level
+     */
+    public long getSuppressedCount(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        return suppressedByLevel[LevelPartitionedEventStore.slotOf(level)].sum();
+    }
+
+    /**
+     * Get number of events refused by a level or logger token bucket
+     * @return rate limited event count
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Get number of events dropped by adaptive sampling
+     * @return sampled out event count
+     */
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    /**
+     * Reset the suppressed counters
+     */
+    public void resetCounts() {
+        rateLimited.reset();
+        sampledOut.reset();
+        for (LongAdder suppressed : suppressedByLevel) {
+            suppressed.reset();
+        }
+    }
+
+    private boolean admitLogger(String loggerName, long now) {
+        TokenBucket template = loggerOverflow;
+        if (template == null) {
+            return true;
+        }
+        TokenBucket bucket = loggerName != null ? loggerBuckets.get(loggerName) : null;
+        if (bucket == null) {
+            if (loggerName == null || loggerBuckets.size() >= MAX_LOGGER_BUCKETS) {
+                bucket = template;
+            } else {
+                TokenBucket created = template.copy(now);
+                TokenBucket raced = loggerBuckets.putIfAbsent(loggerName, created);
+                bucket = raced != null ? raced : created;
+            }
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * Count a sampled event and decide whether to keep it
+     * The first thread to see a window end works out the keep rate for the next one
+     */
+    private boolean sample(long now) {
+        windowCount.increment();
+        long start = windowStart.get();
+        long elapsed = now - start;
+        if (elapsed >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            double inputRate = windowCount.sumThenReset() * 1e9 / elapsed;
+            double target = samplingTarget;
+            keepRate = inputRate <= target ? 1.0 : target / inputRate;
+        }
+        double rate = keepRate;
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private TokenBucket bucket(double perSecond, int burst) {
+        if (perSecond < 0 || Double.isNaN(perSecond)) {
+            throw new IllegalArgumentException("Rate cannot be negative");
+        }
+        if (perSecond == 0) {
+            return null;
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        long intervalNanos = Math.min(MAX_AHEAD_NANOS, Math.max(1L, Math.round(1e9 / perSecond)));
+        return new TokenBucket(intervalNanos, burst, clock.getAsLong());
+    }
+
+    private void updateActive() {
+        boolean limited = loggerOverflow != null || samplingTarget > 0;
+        for (TokenBucket bucket : levelBuckets) {
+            limited |= bucket != null;
+        }
+        active = limited;
+    }
+
+    /**
+     * Lock-free token bucket kept as the theoretical arrival time of the next event
+     * An event is admitted while that time is at most burst - 1 intervals ahead of now
+     */
+    private static final class TokenBucket {
+
+        final long intervalNanos;
+        final int burst;
+        private final long toleranceNanos;
+        private final AtomicLong nextArrival;
+
+        TokenBucket(long intervalNanos, int burst, long now) {
+            this.intervalNanos = intervalNanos;
+            this.burst = burst;
+            this.toleranceNanos = Math.multiplyHigh(intervalNanos, burst - 1) != 0
+                    ? MAX_AHEAD_NANOS : Math.min(MAX_AHEAD_NANOS, intervalNanos * (burst - 1));
+            this.nextArrival = new AtomicLong(now);
+        }
+
+        TokenBucket copy(long now) {
+            return new TokenBucket(intervalNanos, burst, now);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long arrival = nextArrival.get();
+                long start = arrival - now > 0 ? arrival : now; // nanoTime may wrap, compare differences
+                if (start - now > toleranceNanos) {
+                    return false;
+                }
+                if (nextArrival.compareAndSet(arrival, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Give back a token taken by tryAcquire for an event that was refused later
+         */
+        void release() {
+            nextArrival.addAndGet(-intervalNanos);
+        }
+    }
+}
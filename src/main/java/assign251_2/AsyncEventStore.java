@@ -0,0 +1,305 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * EventStore decorator that makes add asynchronous
+ * Producers only publish into a bounded lock-free queue; a single daemon
+ * thread moves events into the wrapped store in batches. Producers never
+ * touch the wrapped store's lock, so their latency stays flat while readers
+ * hold it. Events still queued are not visible to snapshot until the drain
+ * thread has stored them; call flush to wait for that.
+ *
+ * After close, add stores synchronously. A producer that passed the running
+ * check before close still offers into the queue, so it checks again after
+ * the offer and, if close has already run its final drain, moves what is
+ * left in the queue into the wrapped store itself, under the same lock as
+ * that final drain so the two never interleave.
+ */
+public class AsyncEventStore implements EventStore {
+
+    /**
+     * What add does when the queue is full
+     */
+    public enum OverflowPolicy {
+        /** Wait until the drain thread makes room */
+        BLOCK,
+        /** Discard the event being added */
+        DROP_NEWEST,
+        /** Discard the oldest queued event to make room */
+        DROP_OLDEST
+    }
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+
+    private final EventStore delegate;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final ConcurrentLinkedQueue<LoggingEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();  // events handed to the queue
+    private final AtomicLong completed = new AtomicLong(); // events stored or dropped from the queue
+    private final List<LoggingEvent> batch; // used by the drain thread, then by close under closeLock
+    private final Object closeLock = new Object(); // orders the final drain and late producers
+    private final Thread drainThread;
+    private volatile boolean running = true;
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create an async store with a queue of 8192 events dropping the oldest on overflow
+     * @param delegate the store receiving the batches
+     */
+    public AsyncEventStore(EventStore delegate) {
+        this(delegate, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Create an async store
+     * @param delegate the store receiving the batches
+     * @param queueCapacity maximum number of queued events
+     * @param overflowPolicy what to do when the queue is full
+     */
+    public AsyncEventStore(EventStore delegate, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate store cannot be null");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = Math.min(queueCapacity, DEFAULT_BATCH_SIZE);
+        this.overflowPolicy = overflowPolicy;
+        this.batch = new ArrayList<>(batchSize);
+        this.drainThread = new Thread(this::drainLoop, "MemAppender-async-drain");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        if (!running) {
+            delegate.add(event); // closed, store synchronously
+            return;
+        }
+
+        while (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    notifyEvicted(event);
+                    return;
+                case DROP_OLDEST:
+                    LoggingEvent oldest = queue.poll();
+                    if (oldest != null) {
+                        queued.decrementAndGet();
+                        completed.incrementAndGet();
+                        notifyEvicted(oldest);
+                    }
+                    break;
+                default:
+                    LockSupport.unpark(drainThread);
+                    LockSupport.parkNanos(IDLE_PARK_NANOS / 10); // BLOCK: wait for room
+                    break;
+            }
+        }
+
+        accepted.incrementAndGet();
+        queue.offer(event);
+        if (!running) {
+            drainAfterClose(); // close may have run its final drain before this offer
+        } else if (queued.get() == 1) {
+            LockSupport.unpark(drainThread); // queue was empty, drain thread may be parked
+        }
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public Iterator<LoggingEvent> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public EventSnapshot snapshotFrom(long fromSequence) {
+        return delegate.snapshotFrom(fromSequence);
+    }
+
+    @Override
+    public EventSnapshot snapshotPage(int offset, int limit) {
+        return delegate.snapshotPage(offset, limit);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return delegate.getCapacity();
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        delegate.setCapacity(capacity);
+    }
+
+    @Override
+    public boolean evictOldest() {
+        return delegate.evictOldest();
+    }
+
+    @Override
+    public void clear() {
+        while (queue.poll() != null) {
+            queued.decrementAndGet();
+            completed.incrementAndGet();
+        }
+        delegate.clear();
+    }
+
+    @Override
+    public EventSnapshot drainSnapshot() {
+        flush();
+        return delegate.drainSnapshot();
+    }
+
+    /**
+     * Wait until every event accepted so far has been stored or dropped
+     */
+    @Override
+    public void flush() {
+        long target = accepted.get();
+        while (completed.get() < target && drainThread.isAlive()) {
+            LockSupport.unpark(drainThread);
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    /**
+     * Drain the queue into the wrapped store and stop the drain thread
+     * Events added after close are stored synchronously
+     */
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (closeLock) {
+            drainBatches(); // events that raced with the shutdown
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+        delegate.setEvictionListener(listener);
+    }
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return delegate.getSymbolTable();
+    }
+
+    @Override
+    public boolean retainsInstances() {
+        return delegate.retainsInstances();
+    }
+
+    @Override
+    public long getRecordBytes() {
+        return delegate.getRecordBytes();
+    }
+
+    /**
+     * Get the number of events waiting for the drain thread
+     * @return current queue length
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Get the policy applied when the queue is full
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (!drainBatches()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Move queued events into the wrapped store one batch at a time
+     * @return true if any event was moved
+     */
+    private boolean drainBatches() {
+        boolean moved = false;
+        while (true) {
+            LoggingEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return moved;
+            }
+            delegate.addAll(batch);
+            completed.addAndGet(batch.size());
+            batch.clear();
+            moved = true;
+        }
+    }
+
+    /**
+     * Move queued events into the wrapped store on the calling thread once the
+     * drain thread has stopped; waits for the final drain of close and runs
+     * one producer at a time
+     */
+    private void drainAfterClose() {
+        synchronized (closeLock) {
+            LoggingEvent event;
+            while ((event = queue.poll()) != null) {
+                queued.decrementAndGet();
+                delegate.add(event);
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    private void notifyEvicted(LoggingEvent event) {
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onEvict(event, -1); // never reached the delegate
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package assign251_2;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * Compact copy of a logging event made when it is appended
+ * Holds the level, logger, thread name, timestamp, rendered message and
+ * throwable strings only. The caller's message object, the Throwable with
+ * its stack frames and the MDC map are not referenced, so they can be
+ * collected as soon as the logging call returns. The NDC and a copy of
+ * the MDC are kept only when asked for, for layouts that print them.
+ */
+final class CapturedEvent extends LoggingEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Object> context; // MDC entries, null when dropped
+
+    private CapturedEvent(LoggingEvent source, boolean keepContext) {
+        super(source.getFQNOfLoggerClass(), source.getLogger(), source.timeStamp, source.getLevel(),
+                source.getRenderedMessage(), source.getThreadName(), throwableStrings(source),
+                keepContext ? source.getNDC() : null,
+                source.locationInformationExists() ? source.getLocationInformation() : null, null);
+        this.context = keepContext ? copyProperties(source) : null;
+    }
+
+    /**
+     * Capture an event on the thread that logged it
+     * @param source the appended event
+     * @param keepContext true to keep the NDC and a copy of the MDC
+     * @return the compact copy, or the event itself if it is already one
+     */
+    static LoggingEvent capture(LoggingEvent source, boolean keepContext) {
+        if (source instanceof CapturedEvent) {
+            return source;
+        }
+        return new CapturedEvent(source, keepContext);
+    }
+
+    @Override
+    public Object getMDC(String key) {
+        return context != null ? context.get(key) : null; // never the MDC of the formatting thread
+    }
+
+    @Override
+    public void getMDCCopy() {
+        // The MDC was copied when the event was captured
+    }
+
+    @Override
+    public Map<String, Object> getProperties() {
+        return context != null ? context : Collections.emptyMap();
+    }
+
+    @Override
+    public Set<String> getPropertyKeySet() {
+        return getProperties().keySet();
+    }
+
+    private static Map<String, Object> copyProperties(LoggingEvent source) {
+        Map<String, Object> copy = new HashMap<>();
+        for (Object entry : source.getProperties().entrySet()) {
+            Map.Entry<?, ?> property = (Map.Entry<?, ?>) entry;
+            copy.put(String.valueOf(property.getKey()), property.getValue());
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static ThrowableInformation throwableStrings(LoggingEvent source) {
+        String[] lines = source.getThrowableStrRep();
+        return lines != null ? new ThrowableInformation(lines) : null;
+    }
+}
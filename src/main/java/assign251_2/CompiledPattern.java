@@ -0,0 +1,303 @@
+package assign251_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * VelocityLayout pattern compiled into literal and field segments
+ * Only patterns made of plain text, the references $c, $d, $m, $p, $t, $n,
+ * $x and $throwable (also written ${x}, $!x or $!{x}) and MDC lookups
+ * $X{key} are compiled, so only the fields a pattern names are ever
+ * computed. Anything Velocity could
+ * interpret differently (directives, escapes, method calls, other
+ * references) makes compile return null so the layout uses the full engine.
+ * Output matches Velocity byte for byte, including the literal reference
+ * text Velocity prints for a null value.
+ */
+final class CompiledPattern {
+
+    private final Segment[] segments;
+
+    private CompiledPattern(List<Segment> segments) {
+        this.segments = segments.toArray(new Segment[0]);
+    }
+
+    /**
+     * Compile a pattern into segments
+     * @param pattern the velocity template pattern
+     * @return the compiled pattern, or null if the pattern needs the Velocity engine
+     */
+    static CompiledPattern compile(String pattern) {
+        if (pattern == null || pattern.indexOf('#') >= 0 || pattern.indexOf('\\') >= 0) {
+            return null; // directives, comments and escapes need the engine
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char ch = pattern.charAt(i);
+            if (ch != '$') {
+                literal.append(ch);
+                i++;
+                continue;
+            }
+
+            int start = i++;
+            boolean quiet = i < pattern.length() && pattern.charAt(i) == '!';
+            if (quiet) {
+                i++;
+            }
+            boolean braced = i < pattern.length() && pattern.charAt(i) == '{';
+            if (braced) {
+                i++;
+            }
+
+            int nameStart = i;
+            if (i >= pattern.length() || !isIdentifierStart(pattern.charAt(i))) {
+                return null;
+            }
+            while (i < pattern.length() && isIdentifierPart(pattern.charAt(i))) {
+                i++;
+            }
+            String name = pattern.substring(nameStart, i);
+
+            String key = null;
+            if (!braced && name.equals(Field.MDC.name) && i < pattern.length() && pattern.charAt(i) == '{') {
+                int keyStart = ++i;
+                while (i < pattern.length() && isMdcKeyPart(pattern.charAt(i))) {
+                    i++;
+                }
+                if (i == keyStart || i >= pattern.length() || pattern.charAt(i) != '}') {
+                    return null;
+                }
+                key = pattern.substring(keyStart, i++);
+            } else if (braced) {
+                if (i >= pattern.length() || pattern.charAt(i) != '}') {
+                    return null;
+                }
+                i++;
+            } else if (i < pattern.length() && ".[(".indexOf(pattern.charAt(i)) >= 0) {
+                return null; // possible method call, property or index
+            }
+
+            Field field = Field.forName(name);
+            if (field == null || (field == Field.MDC) != (key != null)) {
+                return null; // a bare $X is the whole MDC map, left to Velocity
+            }
+            if (literal.length() > 0) {
+                segments.add(new Segment(literal.toString()));
+                literal.setLength(0);
+            }
+            segments.add(new Segment(field, quiet ? "" : pattern.substring(start, i), key));
+        }
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString()));
+        }
+        return new CompiledPattern(segments);
+    }
+
+    /**
+     * Append the formatted event to a builder
+     * @param out the builder to append to
+     * @param event the logging event to format
+     * @param dates renderer for $d
+     */
+    void appendTo(StringBuilder out, LoggingEvent event, DateRenderer dates) {
+        for (Segment segment : segments) {
+            if (segment.field == null) {
+                out.append(segment.text);
+                continue;
+            }
+            if (segment.field == Field.DATE) {
+                dates.appendTo(out, event.timeStamp);
+                continue;
+            }
+            String value = segment.field.value(event, segment.key);
+            out.append(value != null ? value : segment.text); // Velocity prints null references literally
+        }
+    }
+
+    /**
+     * Write the formatted event UTF-8 encoded into a buffer
+     * Literal text is encoded once at compile time and field values are
+     * encoded straight from their strings, so nothing is allocated
+     * @param out the buffer to write to
+     * @param event the logging event to format
+     * @param dates renderer for $d
+     * @throws java.nio.BufferOverflowException if the buffer fills up; it may hold part of the event
+     */
+    void encodeTo(ByteBuffer out, LoggingEvent event, DateRenderer dates) {
+        for (Segment segment : segments) {
+            if (segment.field == null) {
+                out.put(segment.bytes);
+                continue;
+            }
+            if (segment.field == Field.DATE) {
+                dates.encodeTo(out, event.timeStamp);
+                continue;
+            }
+            String value = segment.field.value(event, segment.key);
+            if (value != null) {
+                putUtf8(value, out);
+            } else {
+                out.put(segment.bytes);
+            }
+        }
+    }
+
+    /**
+     * Encode characters as UTF-8 without an intermediate byte array
+     * Unpaired surrogates are written as '?', like String.getBytes
+     * @param text the characters to encode
+     * @param out the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer fills up
+     */
+    static void putUtf8(CharSequence text, ByteBuffer out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                out.put((byte) ch);
+            } else if (ch < 0x800) {
+                out.put((byte) (0xC0 | (ch >> 6)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isSurrogate(ch)) {
+                if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(ch, text.charAt(++i));
+                    out.put((byte) (0xF0 | (codePoint >> 18)));
+                    out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    out.put((byte) '?');
+                }
+            } else {
+                out.put((byte) (0xE0 | (ch >> 12)));
+                out.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+    }
+
+    // Velocity 1.7 identifier rules
+    private static boolean isIdentifierStart(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '_';
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return isIdentifierStart(ch) || (ch >= '0' && ch <= '9') || ch == '-';
+    }
+
+    /**
+     * Characters allowed in the key of $X{key}
+     * @param ch the character
+     * @return true if the character can be part of an MDC key
+     */
+    static boolean isMdcKeyPart(char ch) {
+        return isIdentifierPart(ch) || ch == '.';
+    }
+
+    /**
+     * Render the throwable of an event, one line per stack trace line
+     * @param event the logging event
+     * @return the stack trace text, or an empty string if the event has none
+     */
+    static String throwableText(LoggingEvent event) {
+        String[] lines = event.getThrowableStrRep();
+        if (lines == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Variables supported by VelocityLayout
+     */
+    enum Field {
+        LOGGER("c"),
+        DATE("d"),
+        MESSAGE("m"),
+        LEVEL("p"),
+        THREAD("t"),
+        NEWLINE("n"),
+        NDC("x"),
+        MDC("X"),
+        THROWABLE("throwable");
+
+        private final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+
+        static Field forName(String name) {
+            for (Field field : values()) {
+                if (field.name.equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the value of a field other than DATE, which DateRenderer writes
+         * MDC, NDC and throwable values are empty rather than null when unset
+         * @param event the logging event
+         * @param key the MDC key, only used by MDC
+         */
+        String value(LoggingEvent event, String key) {
+            switch (this) {
+                case LOGGER:
+                    return event.getLoggerName();
+                case MESSAGE:
+                    return event.getRenderedMessage();
+                case LEVEL:
+                    return event.getLevel().toString();
+                case THREAD:
+                    return event.getThreadName();
+                case NEWLINE:
+                    return System.lineSeparator();
+                case NDC:
+                    String ndc = event.getNDC();
+                    return ndc != null ? ndc : "";
+                case MDC:
+                    Object value = event.getMDC(key);
+                    return value != null ? value.toString() : "";
+                case THROWABLE:
+                    return throwableText(event);
+                default:
+                    throw new IllegalStateException("No string value for " + this);
+            }
+        }
+    }
+
+    /**
+     * Literal text, or a field with the text printed when its value is null
+     */
+    private static final class Segment {
+
+        final Field field;
+        final String text;
+        final String key; // MDC key of $X{key}
+        final byte[] bytes; // text encoded as UTF-8
+
+        Segment(String literal) {
+            this(null, literal, null);
+        }
+
+        Segment(Field field, String text, String key) {
+            this.field = field;
+            this.text = text;
+            this.key = key;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Lock-free multi-producer EventStore in the style of a Disruptor ring
+ * Producers claim a sequence number with one atomic increment and publish
+ * into slot (sequence % capacity), so they never wait for each other except
+ * when two producers are a whole lap apart on the same slot.
+ * Readers take snapshots without stopping producers: a slot is only read
+ * when its published sequence is the same before and after the read, and
+ * events still being written are left out of the snapshot.
+ * Resizing and clearing are rare administrative operations; producers spin
+ * briefly while a resize swaps in the new ring.
+ * Unlike RingBufferEventStore the full capacity is allocated up front.
+ */
+public class ConcurrentRingEventStore implements EventStore {
+
+    private static final long EMPTY = -1L; // slot never written or cleared
+    private static final long BUSY = -2L;  // slot being written
+    private static final long CLOSED = Long.MAX_VALUE / 2; // cursor of a retired ring
+
+    private volatile Ring ring;
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create a concurrent ring with the default capacity of 1000 events
+     */
+    public ConcurrentRingEventStore() {
+        this(1000);
+    }
+
+    /**
+     * Create a concurrent ring with the given capacity
+     * @param capacity maximum number of events to keep
+     */
+    public ConcurrentRingEventStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ring = new Ring(capacity, 0);
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        while (true) {
+            Ring r = ring;
+            long seq = r.cursor.getAndIncrement();
+            if (seq >= CLOSED) {
+                awaitReplacement(r); // ring retired by a resize
+                continue;
+            }
+            r.publish(seq, event, evictionListener);
+            return;
+        }
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        while (true) {
+            Ring r = ring;
+            long end = r.cursor.get();
+            if (end >= CLOSED) {
+                awaitReplacement(r);
+                continue;
+            }
+            return r.read(r.first(end), end, null);
+        }
+    }
+
+    @Override
+    public EventSnapshot snapshotFrom(long fromSequence) {
+        while (true) {
+            Ring r = ring;
+            long end = r.cursor.get();
+            if (end >= CLOSED) {
+                awaitReplacement(r);
+                continue;
+            }
+            return r.readSnapshot(Math.max(fromSequence, r.first(end)), end);
+        }
+    }
+
+    @Override
+    public int size() {
+        Ring r = ring;
+        long end = Math.min(r.cursor.get(), r.end);
+        return (int) Math.max(0, end - r.first(end));
+    }
+
+    @Override
+    public int getCapacity() {
+        return ring.capacity;
+    }
+
+    @Override
+    public synchronized void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Ring old = ring;
+        if (old.capacity == capacity) {
+            return;
+        }
+        EventSnapshot live = old.retire();
+        List<LoggingEvent> events = live.getEvents();
+
+        // Live events keep their sequence numbers in the new ring, so only those
+        // within capacity of the cursor stay visible; live sequences may have
+        // gaps, so the rest is found by sequence rather than by count
+        long next = live.size() > 0 ? live.getSequence(live.size() - 1) + 1 : old.end;
+        int excess = 0;
+        while (excess < live.size() && live.getSequence(excess) < next - capacity) {
+            excess++;
+        }
+        Ring resized = new Ring(capacity, excess < live.size() ? live.getSequence(excess) : next);
+        for (int i = excess; i < live.size(); i++) {
+            resized.publish(live.getSequence(i), events.get(i), null);
+        }
+        resized.cursor.set(next);
+        ring = resized;
+
+        for (int i = 0; i < excess; i++) {
+            notifyEvicted(events.get(i), live.getSequence(i));
+        }
+    }
+
+    @Override
+    public synchronized boolean evictOldest() {
+        Ring r = ring;
+        long end = r.cursor.get();
+        for (long seq = r.first(end); seq < end; seq++) {
+            LoggingEvent evicted = r.remove(seq);
+            r.trimmed = seq + 1;
+            if (evicted != null) {
+                notifyEvicted(evicted, seq);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void clear() {
+        ring.clear();
+    }
+
+    @Override
+    public synchronized EventSnapshot drainSnapshot() {
+        Ring old = ring;
+        Ring fresh = new Ring(old.capacity, 0); // allocated before producers are stopped
+        long last = old.close();
+        fresh.cursor.set(last);
+        fresh.start = last;
+        ring = fresh;
+        // producers continue on the new ring while the old one is read
+        return old.collect(last);
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    private void awaitReplacement(Ring retired) {
+        while (ring == retired) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void notifyEvicted(LoggingEvent event, long sequence) {
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onEvict(event, sequence);
+        }
+    }
+
+    /**
+     * One generation of the ring; replaced as a whole on resize
+     */
+    private static final class Ring {
+
+        final int capacity;
+        final AtomicLong cursor;
+        final AtomicReferenceArray<LoggingEvent> events;
+        final AtomicLongArray published;
+        volatile long start; // first sequence still visible after a clear
+        volatile long trimmed; // sequences below this were removed by evictOldest
+        volatile long end = Long.MAX_VALUE; // cursor value when the ring was retired
+
+        Ring(int capacity, long firstSequence) {
+            this.capacity = capacity;
+            this.cursor = new AtomicLong(firstSequence);
+            this.start = firstSequence;
+            this.events = new AtomicReferenceArray<>(capacity);
+            this.published = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                published.set(i, EMPTY);
+            }
+        }
+
+        /**
+         * Write an event into the slot of the claimed sequence
+         * The listener hears about the stored event while the slot is held,
+         * so before anyone can replace it, and then about the visible event
+         * it replaced
+         * @param listener the store's listener, or null when moving events between rings
+         */
+        void publish(long seq, LoggingEvent event, EvictionListener listener) {
+            int index = (int) (seq % capacity);
+            while (true) {
+                long previous = published.get(index);
+                if (previous == BUSY) {
+                    Thread.onSpinWait(); // another producer a lap apart holds the slot
+                    continue;
+                }
+                if (previous > seq) {
+                    if (listener != null) {
+                        listener.onEvict(event, seq); // overtaken by a newer lap, this event is already evicted
+                    }
+                    return;
+                }
+                if (published.compareAndSet(index, previous, BUSY)) {
+                    LoggingEvent replaced = events.getAndSet(index, event);
+                    if (listener != null) {
+                        listener.onStore(event, seq);
+                    }
+                    published.set(index, seq);
+                    if (listener != null && previous >= start && replaced != null) {
+                        listener.onEvict(replaced, previous);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * First sequence that can still be visible when the cursor is at end
+         */
+        long first(long end) {
+            return Math.max(Math.max(start, trimmed), end - capacity);
+        }
+
+        /**
+         * Remove the event of a sequence, waiting for it if it is still being written
+         * @return the removed event, or null if a newer lap already replaced it
+         */
+        LoggingEvent remove(long seq) {
+            int index = (int) (seq % capacity);
+            while (true) {
+                long current = published.get(index);
+                if (current > seq) {
+                    return null; // overwritten, the producer reported the eviction
+                }
+                if (current != seq) {
+                    Thread.onSpinWait(); // producer claimed the slot but has not published yet
+                    continue;
+                }
+                if (published.compareAndSet(index, seq, BUSY)) {
+                    LoggingEvent removed = events.getAndSet(index, null);
+                    published.set(index, EMPTY);
+                    return removed;
+                }
+            }
+        }
+
+        /**
+         * Read the published events in [from, to) oldest first
+         */
+        List<LoggingEvent> read(long from, long to, long[] sequences) {
+            List<LoggingEvent> copy = new ArrayList<>((int) Math.max(0, to - from));
+            for (long seq = from; seq < to; seq++) {
+                int index = (int) (seq % capacity);
+                long before = published.get(index);
+                if (before != seq) {
+                    continue; // not yet published or already overwritten
+                }
+                LoggingEvent event = events.get(index);
+                if (published.get(index) == seq) {
+                    if (sequences != null) {
+                        sequences[copy.size()] = seq;
+                    }
+                    copy.add(event);
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Read the published events in [from, to) with their sequence numbers
+         */
+        EventSnapshot readSnapshot(long from, long to) {
+            long[] sequences = new long[(int) Math.max(0, to - from)];
+            List<LoggingEvent> copy = read(from, to, sequences);
+            return new EventSnapshot(copy, Arrays.copyOf(sequences, copy.size()));
+        }
+
+        /**
+         * Stop producers from claiming new sequences, wait for in-flight
+         * writes and return the remaining events oldest first
+         */
+        EventSnapshot retire() {
+            return collect(close());
+        }
+
+        /**
+         * Stop producers from claiming new sequences
+         * @return the cursor value when the ring was closed
+         */
+        long close() {
+            long last = cursor.getAndSet(CLOSED);
+            end = last;
+            return last;
+        }
+
+        /**
+         * Wait for in-flight writes below last and return the remaining events
+         * @param last the cursor value returned by close
+         */
+        EventSnapshot collect(long last) {
+            long from = first(last);
+            for (long seq = from; seq < last; seq++) {
+                int index = (int) (seq % capacity);
+                while (published.get(index) < seq) {
+                    Thread.onSpinWait(); // producer claimed the slot but has not published yet
+                }
+            }
+            return readSnapshot(from, last);
+        }
+
+        void clear() {
+            start = cursor.get();
+            for (int i = 0; i < capacity; i++) {
+                long previous = published.get(i);
+                if (previous >= 0 && previous < start
+                        && published.compareAndSet(i, previous, BUSY)) {
+                    events.set(i, null);
+                    published.set(i, EMPTY);
+                }
+            }
+        }
+    }
+}
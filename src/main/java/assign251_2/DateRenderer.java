@@ -0,0 +1,232 @@
+package assign251_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Renders event timestamps for the $d variable
+ * Formats are the Date.toString default, ISO8601, EPOCH (milliseconds since
+ * the epoch) or any DateTimeFormatter pattern. The text of the current second
+ * is rendered once and cached per thread, so parallel formatting tasks
+ * working on different seconds don't replace each other's entry. Within
+ * that second only the three millisecond digits are patched in, so
+ * rendering a timestamp allocates nothing. Formats
+ * whose millisecond field can't be located this way (such as a single S) are
+ * rendered in full for every event.
+ */
+final class DateRenderer {
+
+    static final String DEFAULT = "DEFAULT";
+    static final String ISO8601 = "ISO8601";
+    static final String EPOCH = "EPOCH";
+
+    private static final String ISO8601_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+    private final String format;
+    private final DateTimeFormatter formatter; // null for DEFAULT and EPOCH
+    private final boolean cacheable;
+    private final ThreadLocal<Second> cached = new ThreadLocal<>(); // last second rendered by each thread
+
+    /**
+     * Create a renderer for a date format
+     * @param format DEFAULT, ISO8601, EPOCH or a DateTimeFormatter pattern; null means DEFAULT
+     */
+    DateRenderer(String format) {
+        String name = format == null || format.isEmpty() ? DEFAULT : format;
+        this.format = name;
+        if (name.equalsIgnoreCase(DEFAULT) || name.equalsIgnoreCase(EPOCH)) {
+            this.formatter = null;
+        } else {
+            String pattern = name.equalsIgnoreCase(ISO8601) ? ISO8601_PATTERN : name;
+            try {
+                this.formatter = DateTimeFormatter.ofPattern(pattern, Locale.US).withZone(ZoneId.systemDefault());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid date format: " + name, e);
+            }
+        }
+        this.cacheable = !isEpoch() && (formatter == null || millisOf(0) != Second.NO_MILLIS);
+    }
+
+    /**
+     * Get the configured format
+     * @return the format name or pattern
+     */
+    String getFormat() {
+        return format;
+    }
+
+    /**
+     * Check whether the default Date.toString format is used
+     * @return true for the default format
+     */
+    boolean isDefault() {
+        return format.equalsIgnoreCase(DEFAULT);
+    }
+
+    /**
+     * Render a timestamp as a String
+     * @param timeStamp milliseconds since the epoch
+     * @return the formatted timestamp
+     */
+    String format(long timeStamp) {
+        StringBuilder out = new StringBuilder(32);
+        appendTo(out, timeStamp);
+        return out.toString();
+    }
+
+    /**
+     * Append a rendered timestamp to a builder
+     * @param out the builder to append to
+     * @param timeStamp milliseconds since the epoch
+     */
+    void appendTo(StringBuilder out, long timeStamp) {
+        if (isEpoch()) {
+            out.append(timeStamp);
+            return;
+        }
+        if (!cacheable) {
+            out.append(render(timeStamp));
+            return;
+        }
+        Second second = second(timeStamp);
+        if (second.millisIndex == Second.NO_MILLIS) {
+            out.append(render(timeStamp));
+        } else if (second.millisIndex < 0) {
+            out.append(second.text);
+        } else {
+            int millis = (int) Math.floorMod(timeStamp, 1000L);
+            out.append(second.text, 0, second.millisIndex)
+                    .append((char) ('0' + millis / 100))
+                    .append((char) ('0' + millis / 10 % 10))
+                    .append((char) ('0' + millis % 10))
+                    .append(second.text, second.millisIndex + 3, second.text.length());
+        }
+    }
+
+    /**
+     * Write a rendered timestamp UTF-8 encoded into a buffer
+     * @param out the buffer to write to
+     * @param timeStamp milliseconds since the epoch
+     * @throws java.nio.BufferOverflowException if the buffer fills up
+     */
+    void encodeTo(ByteBuffer out, long timeStamp) {
+        if (isEpoch()) {
+            putDigits(timeStamp, out);
+            return;
+        }
+        if (!cacheable) {
+            CompiledPattern.putUtf8(render(timeStamp), out);
+            return;
+        }
+        Second second = second(timeStamp);
+        if (second.millisIndex == Second.NO_MILLIS) {
+            CompiledPattern.putUtf8(render(timeStamp), out);
+        } else if (second.millisIndex < 0) {
+            out.put(second.bytes);
+        } else {
+            int millis = (int) Math.floorMod(timeStamp, 1000L);
+            out.put(second.bytes, 0, second.millisByteIndex)
+                    .put((byte) ('0' + millis / 100))
+                    .put((byte) ('0' + millis / 10 % 10))
+                    .put((byte) ('0' + millis % 10))
+                    .put(second.bytes, second.millisByteIndex + 3, second.bytes.length - second.millisByteIndex - 3);
+        }
+    }
+
+    private boolean isEpoch() {
+        return format.equalsIgnoreCase(EPOCH);
+    }
+
+    private Second second(long timeStamp) {
+        long secondStart = Math.floorDiv(timeStamp, 1000L) * 1000L;
+        Second current = cached.get();
+        if (current == null || current.start != secondStart) {
+            current = new Second(secondStart, render(secondStart), formatter == null ? -1 : millisOf(secondStart));
+            cached.set(current);
+        }
+        return current;
+    }
+
+    private String render(long timeStamp) {
+        if (formatter == null) {
+            return new Date(timeStamp).toString();
+        }
+        return formatter.format(Instant.ofEpochMilli(timeStamp));
+    }
+
+    /**
+     * Locate the millisecond digits in the text rendered for a second
+     * The second is rendered with several millisecond values, and the texts
+     * must differ in exactly three digits that spell those values
+     * @param secondStart the first millisecond of the second
+     * @return index of the first digit, -1 if the format has no milliseconds,
+     *         or NO_MILLIS if the millisecond field can't be patched
+     */
+    private int millisOf(long secondStart) {
+        String start = render(secondStart);
+        String late = render(secondStart + 999);
+        if (late.equals(start)) {
+            return -1;
+        }
+        if (late.length() != start.length()) {
+            return Second.NO_MILLIS;
+        }
+        int first = 0;
+        while (late.charAt(first) == start.charAt(first)) {
+            first++;
+        }
+        if (first + 3 > start.length()
+                || !start.regionMatches(first, "000", 0, 3) || !late.regionMatches(first, "999", 0, 3)
+                || !start.regionMatches(first + 3, late, first + 3, start.length() - first - 3)
+                || !render(secondStart + 123).regionMatches(first, "123", 0, 3)) {
+            return Second.NO_MILLIS;
+        }
+        return first;
+    }
+
+    private static void putDigits(long value, ByteBuffer out) {
+        if (value < 0) {
+            out.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                out.put("9223372036854775808".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Text rendered for one second, with the position of its millisecond digits
+     */
+    private static final class Second {
+
+        static final int NO_MILLIS = -2;
+
+        final long start;
+        final String text;
+        final byte[] bytes; // text encoded as UTF-8
+        final int millisIndex;
+        final int millisByteIndex;
+
+        Second(long start, String text, int millisIndex) {
+            this.start = start;
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+            this.millisIndex = millisIndex;
+            this.millisByteIndex = millisIndex < 0 ? -1
+                    : text.substring(0, millisIndex).getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+}
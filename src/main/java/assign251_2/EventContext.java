@@ -0,0 +1,110 @@
+package assign251_2;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.velocity.context.AbstractContext;
+
+/**
+ * Velocity context that resolves layout variables from an event on first lookup
+ * Used for patterns that need the Velocity engine, where the variables a
+ * template reads can't be known up front; a variable the template never
+ * reaches is never computed. $X is the event's MDC as a map, so
+ * $X{key} (rewritten by the layout) and $X.key both read one entry.
+ * Values set by the template with #set shadow the event's variables.
+ */
+final class EventContext extends AbstractContext {
+
+    private static final String[] KEYS = {"c", "d", "m", "p", "t", "n", "x", "X", "throwable"};
+
+    private final LoggingEvent event;
+    private final DateRenderer dates;
+    private Map<String, Object> values; // resolved and #set values, created on first use
+
+    /**
+     * Create a context for one event
+     * @param event the logging event to read variables from
+     * @param dates renderer for $d
+     */
+    EventContext(LoggingEvent event, DateRenderer dates) {
+        this.event = event;
+        this.dates = dates;
+    }
+
+    @Override
+    public Object internalGet(String key) {
+        if (values != null && values.containsKey(key)) {
+            return values.get(key);
+        }
+        Object value = resolve(key);
+        if (value != null) {
+            internalPut(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Object internalPut(String key, Object value) {
+        if (values == null) {
+            values = new HashMap<>();
+        }
+        return values.put(key, value);
+    }
+
+    @Override
+    public boolean internalContainsKey(Object key) {
+        if (values != null && values.containsKey(key)) {
+            return true;
+        }
+        for (String name : KEYS) {
+            if (name.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] internalGetKeys() {
+        Map<String, Object> keys = new HashMap<>();
+        for (String name : KEYS) {
+            keys.put(name, null);
+        }
+        if (values != null) {
+            keys.putAll(values);
+        }
+        return keys.keySet().toArray();
+    }
+
+    @Override
+    public Object internalRemove(Object key) {
+        return values != null ? values.remove(key) : null;
+    }
+
+    private Object resolve(String key) {
+        switch (key) {
+            case "c":
+                return event.getLoggerName();
+            case "d":
+                // a Date keeps $d.time working with the default format
+                return dates.isDefault() ? new Date(event.timeStamp) : dates.format(event.timeStamp);
+            case "m":
+                return event.getRenderedMessage();
+            case "p":
+                return event.getLevel().toString();
+            case "t":
+                return event.getThreadName();
+            case "n":
+                return System.lineSeparator();
+            case "x":
+                return CompiledPattern.Field.NDC.value(event, null);
+            case "X":
+                return event.getProperties();
+            case "throwable":
+                return CompiledPattern.throwableText(event);
+            default:
+                return null;
+        }
+    }
+}
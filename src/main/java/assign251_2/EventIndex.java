@@ -0,0 +1,310 @@
+package assign251_2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Secondary indexes over the events held by a MemAppender
+ * Keeps posting lists per level, per logger name (sorted, so a logger prefix
+ * is a range scan) and per one-second time bucket. Entries are keyed by the
+ * sequence number the store gave the event, added when the store takes the
+ * event and removed by that number on eviction, so a decoded copy handed
+ * back by the store never removes the wrong entry. Stores evict oldest
+ * first, so removed entries are usually at the head of their lists and are
+ * dropped there. Entries removed out of order, as a level-partitioned store
+ * does when it evicts DEBUG events behind older ERRORs, are skipped by
+ * queries, and once more entries have been removed since the last sweep
+ * than are live (plus COMPACT_SLACK) every list is swept, so the lists stay
+ * proportional to the indexed events at an amortized constant cost.
+ */
+final class EventIndex {
+
+    static final long BUCKET_MILLIS = 1000;
+    static final int COMPACT_SLACK = 64; // removals tolerated on top of size before a sweep
+
+    private final ArrayDeque<Entry> all = new ArrayDeque<>();
+    private final TreeMap<Integer, ArrayDeque<Entry>> byLevel = new TreeMap<>();
+    private final TreeMap<String, ArrayDeque<Entry>> byLogger = new TreeMap<>();
+    private final TreeMap<Long, ArrayDeque<Entry>> byTime = new TreeMap<>();
+    private final Map<Long, Entry> bySequence = new HashMap<>();
+    private int size;
+    private int removedSinceCompact; // removed entries that may still sit inside a list
+    private Set<Long> removedWhileFilling; // sequence numbers evicted during fill, null otherwise
+
+    /**
+     * Index a stored event
+     * @param event the logging event
+     * @param sequence the sequence number the store gave it
+     */
+    synchronized void add(LoggingEvent event, long sequence) {
+        Entry entry = new Entry(event, sequence);
+        if (bySequence.putIfAbsent(sequence, entry) != null) {
+            return; // already indexed
+        }
+        all.addLast(entry);
+        byLevel.computeIfAbsent(entry.level, key -> new ArrayDeque<>()).addLast(entry);
+        byLogger.computeIfAbsent(entry.logger, key -> new ArrayDeque<>()).addLast(entry);
+        byTime.computeIfAbsent(bucketOf(entry.timeStamp), key -> new ArrayDeque<>()).addLast(entry);
+        size++;
+    }
+
+    /**
+     * Start recording evictions, before the index is published to the store's listener
+     * Call fill once the index receives onStore and onEvict callbacks
+     */
+    synchronized void beginFill() {
+        removedWhileFilling = new HashSet<>();
+    }
+
+    /**
+     * Index the events the store held when the index was published
+     * Events stored since then are already indexed and skipped, and events
+     * evicted since beginFill are left out
+     * @param stored snapshot taken after the index was published
+     */
+    synchronized void fill(EventSnapshot stored) {
+        Set<Long> removed = removedWhileFilling;
+        removedWhileFilling = null;
+        for (int i = 0; i < stored.size(); i++) {
+            long sequence = stored.getSequence(i);
+            if (removed == null || !removed.contains(sequence)) {
+                add(stored.getEvents().get(i), sequence);
+            }
+        }
+    }
+
+    /**
+     * Remove an evicted event
+     * @param sequence the sequence number the store gave it
+     */
+    synchronized void remove(long sequence) {
+        Entry entry = bySequence.remove(sequence);
+        if (entry == null) {
+            if (removedWhileFilling != null) {
+                removedWhileFilling.add(sequence); // may still be in the snapshot being filled
+            }
+            return;
+        }
+        entry.removed = true;
+        size--;
+        purge(all);
+        purge(byLevel, entry.level);
+        purge(byLogger, entry.logger);
+        purge(byTime, bucketOf(entry.timeStamp));
+        if (++removedSinceCompact > size + COMPACT_SLACK) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove every entry
+     */
+    synchronized void clear() {
+        all.clear();
+        byLevel.clear();
+        byLogger.clear();
+        byTime.clear();
+        bySequence.clear();
+        size = 0;
+        removedSinceCompact = 0;
+    }
+
+    /**
+     * Get number of indexed events
+     * @return event count
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get number of entries held in the list of all events, removed ones included
+     * @return entries not yet dropped
+     */
+    synchronized int getEntryCount() {
+        return all.size();
+    }
+
+    /**
+     * Find indexed events matching every given condition
+     * Only the posting lists of the most selective condition are scanned
+     * @param minLevel lowest level to include, or null for any level
+     * @param loggerPrefix logger name or ancestor logger name, or null for any logger
+     * @param fromTime earliest timestamp to include
+     * @param toTime latest timestamp to include
+     * @param limit maximum number of events, 0 for no limit
+     * @return the newest matching events, oldest first
+     */
+    synchronized List<LoggingEvent> query(Level minLevel, String loggerPrefix, long fromTime, long toTime, int limit) {
+        Collection<ArrayDeque<Entry>> candidates = Collections.singletonList(all);
+        long candidateCount = size;
+        if (minLevel != null) {
+            Collection<ArrayDeque<Entry>> levels = byLevel.tailMap(minLevel.toInt(), true).values();
+            long count = count(levels);
+            if (count < candidateCount) {
+                candidates = levels;
+                candidateCount = count;
+            }
+        }
+        if (loggerPrefix != null) {
+            List<ArrayDeque<Entry>> loggers = new ArrayList<>();
+            NavigableMap<String, ArrayDeque<Entry>> range =
+                    byLogger.subMap(loggerPrefix, true, loggerPrefix + Character.MAX_VALUE, true);
+            for (Map.Entry<String, ArrayDeque<Entry>> logger : range.entrySet()) {
+                if (matchesLogger(logger.getKey(), loggerPrefix)) {
+                    loggers.add(logger.getValue());
+                }
+            }
+            long count = count(loggers);
+            if (count < candidateCount) {
+                candidates = loggers;
+                candidateCount = count;
+            }
+        }
+        if (fromTime > Long.MIN_VALUE || toTime < Long.MAX_VALUE) {
+            if (fromTime > toTime) {
+                return new ArrayList<>();
+            }
+            Collection<ArrayDeque<Entry>> buckets = byTime.subMap(bucketOf(fromTime), true, bucketOf(toTime), true).values();
+            if (count(buckets) < candidateCount) {
+                candidates = buckets;
+            }
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        for (ArrayDeque<Entry> postings : candidates) {
+            for (Entry entry : postings) {
+                if (!entry.removed && matches(entry.event, minLevel, loggerPrefix, fromTime, toTime)) {
+                    matches.add(entry);
+                }
+            }
+        }
+        // lists from several keys interleave, and striped stores may index slightly out of order
+        matches.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        int from = limit > 0 ? Math.max(0, matches.size() - limit) : 0;
+        List<LoggingEvent> events = new ArrayList<>(matches.size() - from);
+        for (int i = from; i < matches.size(); i++) {
+            events.add(matches.get(i).event);
+        }
+        return events;
+    }
+
+    /**
+     * Linear search used when indexing is disabled
+     * @param events the events to search, oldest first
+     * @return the newest matching events, oldest first
+     * @see #query
+     */
+    static List<LoggingEvent> scan(Iterable<LoggingEvent> events, Level minLevel, String loggerPrefix,
+                                   long fromTime, long toTime, int limit) {
+        ArrayDeque<LoggingEvent> matches = new ArrayDeque<>();
+        for (LoggingEvent event : events) {
+            if (matches(event, minLevel, loggerPrefix, fromTime, toTime)) {
+                matches.addLast(event);
+                if (limit > 0 && matches.size() > limit) {
+                    matches.pollFirst();
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    private static boolean matches(LoggingEvent event, Level minLevel, String loggerPrefix,
+                                   long fromTime, long toTime) {
+        return (minLevel == null || event.getLevel().isGreaterOrEqual(minLevel))
+                && (loggerPrefix == null || matchesLogger(event.getLoggerName(), loggerPrefix))
+                && event.timeStamp >= fromTime && event.timeStamp <= toTime;
+    }
+
+    /**
+     * Check a logger name against a prefix on logger hierarchy boundaries,
+     * so com.x matches com.x and com.x.Payment but not com.xyz, and com.x.
+     * matches only the loggers below com.x
+     */
+    private static boolean matchesLogger(String logger, String prefix) {
+        if (prefix.isEmpty() || logger.equals(prefix)) {
+            return true;
+        }
+        return logger.startsWith(prefix)
+                && (prefix.charAt(prefix.length() - 1) == '.' || logger.charAt(prefix.length()) == '.');
+    }
+
+    private static long bucketOf(long timeStamp) {
+        return Math.floorDiv(timeStamp, BUCKET_MILLIS);
+    }
+
+    private static long count(Collection<ArrayDeque<Entry>> postings) {
+        long count = 0;
+        for (ArrayDeque<Entry> list : postings) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    private static void purge(ArrayDeque<Entry> postings) {
+        while (!postings.isEmpty() && postings.peekFirst().removed) {
+            postings.pollFirst();
+        }
+    }
+
+    /**
+     * Drop every removed entry from every list
+     */
+    private void compact() {
+        all.removeIf(entry -> entry.removed);
+        compact(byLevel);
+        compact(byLogger);
+        compact(byTime);
+        removedSinceCompact = 0;
+    }
+
+    private static <K> void compact(Map<K, ArrayDeque<Entry>> index) {
+        Iterator<ArrayDeque<Entry>> lists = index.values().iterator();
+        while (lists.hasNext()) {
+            ArrayDeque<Entry> postings = lists.next();
+            postings.removeIf(entry -> entry.removed);
+            if (postings.isEmpty()) {
+                lists.remove();
+            }
+        }
+    }
+
+    private static <K> void purge(Map<K, ArrayDeque<Entry>> index, K key) {
+        ArrayDeque<Entry> postings = index.get(key);
+        if (postings != null) {
+            purge(postings);
+            if (postings.isEmpty()) {
+                index.remove(key); // keeps short-lived loggers and old buckets from piling up
+            }
+        }
+    }
+
+    private static final class Entry {
+        final LoggingEvent event;
+        final long sequence;
+        final int level;
+        final String logger;
+        final long timeStamp;
+        boolean removed;
+
+        Entry(LoggingEvent event, long sequence) {
+            this.event = event;
+            this.sequence = sequence;
+            this.level = event.getLevel().toInt();
+            this.logger = event.getLoggerName();
+            this.timeStamp = event.timeStamp;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package assign251_2;
+
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * Rough estimate of the heap retained by a buffered logging event
+ * The estimate only reads values LoggingEvent caches after first use
+ * (rendered message, thread name), so an event gives the same number when
+ * it is appended and when it is evicted. A Throwable is never rendered just
+ * to size it: it counts as THROWABLE_BYTES, and only throwables already
+ * held as strings, as captured and decoded events hold them, are sized
+ * line by line.
+ */
+final class EventSizeEstimator {
+
+    static final long EVENT_OVERHEAD = 120; // LoggingEvent object and its fields
+    static final long STRING_OVERHEAD = 40; // String object and its array header
+    static final long THROWABLE_BYTES = 2048; // a Throwable with a typical stack, rendered or not
+
+    private EventSizeEstimator() {
+    }
+
+    /**
+     * Estimate the bytes retained by an event
+     * @param event the logging event
+     * @return estimated retained size in bytes
+     */
+    static long estimate(LoggingEvent event) {
+        long size = EVENT_OVERHEAD
+                + estimate(event.getRenderedMessage())
+                + estimate(event.getThreadName());
+        ThrowableInformation information = event.getThrowableInformation();
+        if (information != null) {
+            if (information.getThrowable() != null) {
+                size += THROWABLE_BYTES;
+            } else {
+                String[] lines = information.getThrowableStrRep();
+                size += 16L + 8L * lines.length;
+                for (String line : lines) {
+                    size += estimate(line);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the bytes retained by a string, assuming two bytes per char
+     * @param value the string, may be null
+     * @return estimated retained size in bytes
+     */
+    static long estimate(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+}
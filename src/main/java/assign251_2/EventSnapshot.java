@@ -0,0 +1,81 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Events copied from an EventStore together with their sequence numbers
+ * Sequence numbers are assigned by the store when an event is added, grow
+ * monotonically and are never reused, so a poller can ask for the events
+ * after the last sequence it has seen
+ */
+public final class EventSnapshot {
+
+    private final List<LoggingEvent> events;
+    private final long[] sequences;
+
+    /**
+     * Create a snapshot
+     * @param events the events, oldest first
+     * @param sequences the sequence number of each event
+     */
+    public EventSnapshot(List<LoggingEvent> events, long[] sequences) {
+        if (events.size() != sequences.length) {
+            throw new IllegalArgumentException("Every event needs a sequence number");
+        }
+        this.events = Collections.unmodifiableList(events);
+        this.sequences = sequences;
+    }
+
+    /**
+     * Create a snapshot of events with consecutive sequence numbers
+     * @param events the events, oldest first
+     * @param firstSequence the sequence number of the first event
+     * @return the new snapshot
+     */
+    static EventSnapshot consecutive(List<LoggingEvent> events, long firstSequence) {
+        long[] sequences = new long[events.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = firstSequence + i;
+        }
+        return new EventSnapshot(events, sequences);
+    }
+
+    /**
+     * Copy part of the snapshot
+     * @param from position of the first event to keep
+     * @param to position after the last event to keep
+     * @return the events from to to with their sequence numbers
+     */
+    EventSnapshot slice(int from, int to) {
+        return new EventSnapshot(new ArrayList<>(events.subList(from, to)), Arrays.copyOfRange(sequences, from, to));
+    }
+
+    /**
+     * Get the events
+     * @return unmodifiable list of events, oldest first
+     */
+    public List<LoggingEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the sequence number of an event
+     * @param index position of the event in getEvents
+     * @return its sequence number
+     */
+    public long getSequence(int index) {
+        return sequences[index];
+    }
+
+    /**
+     * Get number of events in the snapshot
+     * @return event count
+     */
+    public int size() {
+        return sequences.length;
+    }
+}
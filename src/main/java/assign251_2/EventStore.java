@@ -0,0 +1,216 @@
+package assign251_2;
+
+import java.util.Iterator;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Storage engine used by MemAppender to hold logging events
+ * Implementations keep events in arrival order, evict the oldest event
+ * once the capacity is reached and must be safe for concurrent use
+ */
+public interface EventStore extends Iterable<LoggingEvent> {
+
+    /**
+     * Store an event, evicting the oldest one if the store is full
+     * @param event the logging event to store
+     */
+    void add(LoggingEvent event);
+
+    /**
+     * Store a batch of events in order
+     * Implementations should override this to take their lock once per batch
+     * @param batch the events to store, oldest first
+     */
+    default void addAll(List<LoggingEvent> batch) {
+        for (LoggingEvent event : batch) {
+            add(event);
+        }
+    }
+
+    /**
+     * Copy the stored events, oldest first
+     * @return a new list holding the current events
+     */
+    List<LoggingEvent> snapshot();
+
+    /**
+     * Iterate over the stored events, oldest first
+     * Stores that keep events in encoded form override this to decode them
+     * while iterating rather than copying them all up front
+     * @return iterator over a copy of the stored events
+     */
+    @Override
+    default Iterator<LoggingEvent> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Copy the stored events whose sequence number is at least fromSequence
+     * Every added event gets the next sequence number; numbers are never reused,
+     * not even after clear or drain
+     * @param fromSequence smallest sequence number to include
+     * @return the matching events with their sequence numbers, oldest first
+     */
+    EventSnapshot snapshotFrom(long fromSequence);
+
+    /**
+     * Copy at most limit stored events, starting at a position in the store
+     * Stores that can index their events override this to copy only the page
+     * @param offset position of the first event, 0 being the oldest
+     * @param limit maximum number of events
+     * @return the page with its sequence numbers, oldest first
+     */
+    default EventSnapshot snapshotPage(int offset, int limit) {
+        EventSnapshot all = snapshotFrom(0);
+        int from = Math.min(offset, all.size());
+        return all.slice(from, (int) Math.min(all.size(), (long) from + limit));
+    }
+
+    /**
+     * Get current number of stored events
+     * @return current event count
+     */
+    int size();
+
+    /**
+     * Get maximum number of events kept
+     * @return current capacity
+     */
+    int getCapacity();
+
+    /**
+     * Change the capacity, evicting the oldest events if the store shrinks
+     * @param capacity new maximum number of events, must be positive
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Evict the oldest stored event, reporting it to the eviction listener
+     * @return true if an event was evicted
+     */
+    boolean evictOldest();
+
+    /**
+     * Remove all stored events without reporting them as evicted
+     */
+    void clear();
+
+    /**
+     * Atomically remove and return all stored events, oldest first
+     * @return the events that were stored
+     */
+    default List<LoggingEvent> drain() {
+        return drainSnapshot().getEvents();
+    }
+
+    /**
+     * Atomically remove and return all stored events with their sequence numbers
+     * Lets a caller release exactly the state it keeps for the drained events,
+     * while events added after the drain are left alone
+     * @return the events that were stored, oldest first
+     */
+    EventSnapshot drainSnapshot();
+
+    /**
+     * Wait until every event passed to add is visible to readers
+     * Stores that write synchronously have nothing to do
+     */
+    default void flush() {
+    }
+
+    /**
+     * Release resources such as background threads
+     */
+    default void close() {
+    }
+
+    /**
+     * Check whether reads and eviction callbacks hand back the appended event objects
+     * @return false if the store keeps events in another form and returns decoded copies
+     */
+    default boolean retainsInstances() {
+        return true;
+    }
+
+    /**
+     * Get the bytes taken by the stored events, for stores that encode them
+     * into memory they measure themselves
+     * MemAppender counts these instead of estimating the heap size of each event
+     * @return bytes held by the stored records, or -1 if the store keeps events on the heap
+     */
+    default long getRecordBytes() {
+        return -1;
+    }
+
+    /**
+     * Get the dictionary used to store logger and thread names as ids
+     * @return the symbol table, or null if the store keeps event objects as they are
+     */
+    default SymbolTable getSymbolTable() {
+        return null;
+    }
+
+    /**
+     * Register the callback notified for every stored and evicted event
+     * @param listener the listener, or null to stop notifications
+     */
+    void setEvictionListener(EvictionListener listener);
+
+    /**
+     * Callback for events dropped because of size limits
+     * Listeners that keep per-event state, such as indexes, also receive
+     * the sequence number of every event as it is stored and evicted
+     */
+    interface EvictionListener {
+
+        /**
+         * Called after an event has been evicted from the store
+         * @param event the evicted event
+         */
+        void onEvict(LoggingEvent event);
+
+        /**
+         * Called after an event has been evicted from the store
+         * Stores that decode events pass a copy, so the sequence number is
+         * the reliable way to tell which stored event left
+         * @param event the evicted event
+         * @param sequence the sequence number it was stored under, or -1 if it was dropped before it was stored
+         */
+        default void onEvict(LoggingEvent event, long sequence) {
+            onEvict(event);
+        }
+
+        /**
+         * Called once an event is stored, while the store still holds its lock
+         * Runs before onEvict for the same event and must not call back into the store
+         * @param event the stored event, as passed to add
+         * @param sequence its sequence number
+         */
+        default void onStore(LoggingEvent event, long sequence) {
+        }
+
+        /**
+         * Check whether onEvict needs the evicted event itself
+         * Stores that would have to decode an evicted event call onEvictRecord
+         * instead when this returns false
+         * @return true to receive evicted events, false if their level and size are enough
+         */
+        default boolean needsEvictedEvents() {
+            return true;
+        }
+
+        /**
+         * Called instead of onEvict when the store did not decode the evicted event
+         * Only used if needsEvictedEvents returns false
+         * @param sequence the sequence number it was stored under
+         * @param level its level
+         * @param messageChars length of its rendered message
+         * @param estimatedBytes EventSizeEstimator estimate of the event as it was added,
+         *                       or 0 from stores that report getRecordBytes
+         */
+        default void onEvictRecord(long sequence, Level level, int messageChars, long estimatedBytes) {
+        }
+    }
+}
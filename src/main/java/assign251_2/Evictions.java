@@ -0,0 +1,108 @@
+package assign251_2;
+
+import java.util.Arrays;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Events evicted while a store holds its lock, kept with their sequence
+ * numbers so the listener can be notified once the lock is released
+ * A decoding store can record an eviction as level and size only, when the
+ * listener does not need the event itself.
+ */
+final class Evictions {
+
+    private final boolean needsEvents;
+    private LoggingEvent[] events = new LoggingEvent[4];
+    private long[] sequences = new long[4];
+    private Level[] levels; // null until a record without its event is added
+    private int[] messageChars;
+    private long[] estimatedBytes;
+    private int size;
+
+    /**
+     * Create an empty list of evicted events
+     */
+    Evictions() {
+        this(true);
+    }
+
+    /**
+     * Create an empty list for a listener
+     * @param needsEvents false if the listener accepts records without the event
+     */
+    Evictions(boolean needsEvents) {
+        this.needsEvents = needsEvents;
+    }
+
+    /**
+     * Check whether the listener needs evicted events, or only their records
+     * @return true if evicted events must be decoded
+     */
+    boolean needsEvents() {
+        return needsEvents;
+    }
+
+    /**
+     * Record an evicted event
+     * @param event the evicted event
+     * @param sequence the sequence number it was stored under, or -1 if it never was
+     */
+    void add(LoggingEvent event, long sequence) {
+        grow();
+        events[size] = event;
+        sequences[size] = sequence;
+        size++;
+    }
+
+    /**
+     * Record an evicted event without the event itself
+     * @param sequence the sequence number it was stored under
+     * @param level its level
+     * @param chars length of its rendered message
+     * @param bytes its estimated size
+     */
+    void addRecord(long sequence, Level level, int chars, long bytes) {
+        grow();
+        if (levels == null) {
+            levels = new Level[events.length];
+            messageChars = new int[events.length];
+            estimatedBytes = new long[events.length];
+        }
+        sequences[size] = sequence;
+        levels[size] = level;
+        messageChars[size] = chars;
+        estimatedBytes[size] = bytes;
+        size++;
+    }
+
+    /**
+     * Report every recorded event, oldest eviction first
+     * @param listener the store's listener, may be null
+     */
+    void notify(EventStore.EvictionListener listener) {
+        if (listener == null) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (events[i] != null) {
+                listener.onEvict(events[i], sequences[i]);
+            } else {
+                listener.onEvictRecord(sequences[i], levels[i], messageChars[i], estimatedBytes[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        if (size < events.length) {
+            return;
+        }
+        events = Arrays.copyOf(events, size * 2);
+        sequences = Arrays.copyOf(sequences, size * 2);
+        if (levels != null) {
+            levels = Arrays.copyOf(levels, size * 2);
+            messageChars = Arrays.copyOf(messageChars, size * 2);
+            estimatedBytes = Arrays.copyOf(estimatedBytes, size * 2);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package assign251_2;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.log4j.Layout;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Formatted strings of buffered events, kept so repeated reads don't format again
+ * Entries belong to one layout and, for a VelocityLayout, one version of its
+ * pattern and date format; any change empties the cache. Entries are keyed
+ * by event identity, so the cache only works with stores that retain the
+ * appended event objects. Callers read the layout version before formatting
+ * and pass it in with the strings, so strings formatted while the pattern
+ * changed are dropped rather than cached under the new version. Events
+ * evicted while a snapshot is formatted are recorded, so update does not
+ * cache strings of events that are already gone. Every method that changes
+ * the cache returns the change in its estimated size, which the appender
+ * adds to its byte count.
+ */
+final class FormatCache {
+
+    static final long ENTRY_OVERHEAD = 32; // two identity map slots and part of its spare capacity
+
+    private final boolean onAppend;
+    private final Map<LoggingEvent, String> formatted = new IdentityHashMap<>();
+    private Layout layout;
+    private long layoutVersion;
+    private long bytes;
+    private boolean closed; // replaced by another cache, stores nothing more
+    private int formatting; // snapshots between beginFormat and update
+    private Set<LoggingEvent> removedWhileFormatting; // events evicted while formatting, null otherwise
+
+    /**
+     * Create an empty cache
+     * @param onAppend true to format events as they are appended, false to format on first read
+     */
+    FormatCache(boolean onAppend) {
+        this.onAppend = onAppend;
+    }
+
+    /**
+     * Check whether events are formatted as they are appended
+     * @return true for eager caching
+     */
+    boolean isOnAppend() {
+        return onAppend;
+    }
+
+    /**
+     * Get the version of a layout's output
+     * @param layout the layout
+     * @return the VelocityLayout version, 0 for layouts that cannot change
+     */
+    static long versionOf(Layout layout) {
+        return layout instanceof VelocityLayout ? ((VelocityLayout) layout).getVersion() : 0;
+    }
+
+    /**
+     * Store the formatted string of an event
+     * @param currentLayout the layout that produced the string
+     * @param version versionOf the layout, read before formatting
+     * @param event the logging event
+     * @param text the formatted string, not cached if null or if the layout changed since version
+     * @return change in estimated size in bytes
+     */
+    synchronized long put(Layout currentLayout, long version, LoggingEvent event, String text) {
+        long delta = validate(currentLayout);
+        if (text != null && !closed && version == layoutVersion && !formatted.containsKey(event)) {
+            formatted.put(event, text);
+            delta += sizeOf(text);
+        }
+        bytes += delta;
+        return delta;
+    }
+
+    /**
+     * Start recording evictions, before the snapshot to format is taken
+     * Every call must be followed by update once the snapshot is formatted
+     */
+    synchronized void beginFormat() {
+        if (formatting++ == 0) {
+            removedWhileFormatting = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+    }
+
+    /**
+     * Look up the formatted strings of a snapshot
+     * @param currentLayout the layout the strings must come from
+     * @param events the events, oldest first
+     * @param texts receives the cached string of each event, or null where there is none
+     * @return change in estimated size in bytes, negative if the layout changed
+     */
+    synchronized long lookup(Layout currentLayout, List<LoggingEvent> events, String[] texts) {
+        long delta = validate(currentLayout);
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = formatted.get(events.get(i));
+        }
+        bytes += delta;
+        return delta;
+    }
+
+    /**
+     * Store the strings formatted for a snapshot and end its beginFormat
+     * Events evicted since beginFormat are left out
+     * @param currentLayout the layout that produced the strings
+     * @param version versionOf the layout, read before formatting; nothing is cached if it changed since
+     * @param events the events, oldest first
+     * @param texts the formatted string of each event
+     * @return change in estimated size in bytes
+     */
+    synchronized long update(Layout currentLayout, long version, List<LoggingEvent> events, String[] texts) {
+        long delta = validate(currentLayout);
+        Set<LoggingEvent> removed = removedWhileFormatting;
+        for (int i = 0; i < texts.length && !closed && version == layoutVersion; i++) {
+            LoggingEvent event = events.get(i);
+            if (texts[i] != null && !formatted.containsKey(event) && (removed == null || !removed.contains(event))) {
+                formatted.put(event, texts[i]);
+                delta += sizeOf(texts[i]);
+            }
+        }
+        if (formatting > 0 && --formatting == 0) {
+            removedWhileFormatting = null;
+        }
+        bytes += delta;
+        return delta;
+    }
+
+    /**
+     * Drop the string of an evicted event
+     * @param event the evicted event
+     * @return change in estimated size in bytes
+     */
+    synchronized long remove(LoggingEvent event) {
+        if (removedWhileFormatting != null) {
+            removedWhileFormatting.add(event); // may still be in a snapshot being formatted
+        }
+        String text = formatted.remove(event);
+        if (text == null) {
+            return 0;
+        }
+        bytes -= sizeOf(text);
+        return -sizeOf(text);
+    }
+
+    /**
+     * Drop every string
+     * @return change in estimated size in bytes
+     */
+    synchronized long clear() {
+        long delta = -bytes;
+        formatted.clear();
+        bytes = 0;
+        return delta;
+    }
+
+    /**
+     * Drop every string and stop caching, for a cache that is being replaced
+     * Formats still running against this cache then add nothing to it
+     * @return change in estimated size in bytes
+     */
+    synchronized long close() {
+        closed = true;
+        return clear();
+    }
+
+    /**
+     * Get number of cached strings
+     * @return entry count
+     */
+    synchronized int size() {
+        return formatted.size();
+    }
+
+    /**
+     * Get the estimated size of the cached strings
+     * @return estimated size in bytes
+     */
+    synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Empty the cache if it was filled by another layout or layout version
+     * @return change in estimated size in bytes, not yet applied to bytes
+     */
+    private long validate(Layout currentLayout) {
+        long version = versionOf(currentLayout);
+        if (currentLayout == layout && version == layoutVersion) {
+            return 0;
+        }
+        long delta = -bytes;
+        formatted.clear();
+        layout = currentLayout;
+        layoutVersion = version;
+        return delta;
+    }
+
+    private static long sizeOf(String text) {
+        return ENTRY_OVERHEAD + EventSizeEstimator.estimate(text);
+    }
+}
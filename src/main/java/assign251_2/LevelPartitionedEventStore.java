@@ -0,0 +1,280 @@
+package assign251_2;
+
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * EventStore holding one ring per level, so a burst of low-severity
+ * logging can't push out the errors needed for a post-mortem
+ * Levels are TRACE, DEBUG, INFO, WARN, ERROR and FATAL; custom levels
+ * share the ring of the nearest standard level below them. Two limits apply:
+ * <ul>
+ * <li>an optional capacity per level; a full level evicts its own oldest event</li>
+ * <li>the overall capacity; when it is reached the oldest event of the least
+ * severe non-empty level is evicted, and an event less severe than
+ * everything stored is discarded instead of stored</li>
+ * </ul>
+ * Every event gets a global sequence number on add, and reads merge the
+ * rings by it, so events come back in arrival order across levels.
+ */
+public class LevelPartitionedEventStore implements EventStore {
+
+    /** Standard levels in increasing severity, one ring each */
+    static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR, Level.FATAL};
+
+    private final SequencedRing[] partitions = new SequencedRing[LEVELS.length];
+    private int capacity;
+    private int size;
+    private long nextSequence; // sequence number of the next added event
+    private long evictedSequence; // sequence number of the event last returned by store or evictLeastSevere
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create a store with the default capacity of 1000 events and no per-level limits
+     */
+    public LevelPartitionedEventStore() {
+        this(1000);
+    }
+
+    /**
+     * Create a store with no per-level limits
+     * @param capacity maximum number of events to keep across all levels
+     */
+    public LevelPartitionedEventStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new SequencedRing(0);
+        }
+    }
+
+    /**
+     * Get the ring used for a level
+     * @param level the event level
+     * @return index into LEVELS
+     */
+    static int slotOf(Level level) {
+        int severity = level.toInt();
+        for (int i = LEVELS.length - 1; i > 0; i--) {
+            if (severity >= LEVELS[i].toInt()) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        LoggingEvent evicted;
+        long sequence;
+        synchronized (this) {
+            evicted = store(event);
+            sequence = evictedSequence;
+        }
+        notifyEvicted(evicted, sequence);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        Evictions evicted = new Evictions();
+        synchronized (this) {
+            for (LoggingEvent event : batch) {
+                LoggingEvent dropped = store(event);
+                if (dropped != null) {
+                    evicted.add(dropped, evictedSequence);
+                }
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        return snapshotFrom(0).getEvents();
+    }
+
+    @Override
+    public synchronized EventSnapshot snapshotFrom(long fromSequence) {
+        return SequencedRing.merge(partitions, fromSequence);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Evictions evicted = new Evictions();
+        synchronized (this) {
+            this.capacity = capacity;
+            while (size > capacity) {
+                evicted.add(evictLeastSevere(LEVELS.length - 1), evictedSequence);
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    /**
+     * Give a level its own capacity, evicting its oldest events if it shrinks
+     * @param level the level, custom levels map to the standard level below them
+     * @param capacity maximum number of events of that level, or 0 to be bound by the overall capacity only
+     */
+    public void setLevelCapacity(Level level, int capacity) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Level capacity cannot be negative");
+        }
+
+        Evictions evicted = new Evictions();
+        synchronized (this) {
+            SequencedRing partition = partitions[slotOf(level)];
+            partition.limit = capacity;
+            while (capacity > 0 && partition.size() > capacity) {
+                long oldest = partition.headSequence();
+                evicted.add(partition.poll(), oldest);
+                size--;
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    /**
+     * Get the capacity of a level
+     * @param level the level
+     * @return maximum number of events of that level, or 0 if only the overall capacity applies
+     */
+    public synchronized int getLevelCapacity(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        return partitions[slotOf(level)].limit;
+    }
+
+    /**
+     * Get the number of stored events of a level
+     * @param level the level
+     * @return current event count of that level
+     */
+    public synchronized int getLevelSize(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        return partitions[slotOf(level)].size();
+    }
+
+    /**
+     * Evict the oldest event of the least severe non-empty level
+     */
+    @Override
+    public boolean evictOldest() {
+        LoggingEvent evicted;
+        long sequence;
+        synchronized (this) {
+            if (size == 0) {
+                return false;
+            }
+            evicted = evictLeastSevere(LEVELS.length - 1);
+            sequence = evictedSequence;
+        }
+        notifyEvicted(evicted, sequence);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (SequencedRing partition : partitions) {
+            partition.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Swap in empty rings under the lock and merge the old ones outside it
+     */
+    @Override
+    public EventSnapshot drainSnapshot() {
+        SequencedRing[] drained = new SequencedRing[partitions.length];
+        synchronized (this) {
+            for (int i = 0; i < partitions.length; i++) {
+                drained[i] = partitions[i].takeAll();
+            }
+            size = 0;
+        }
+        return SequencedRing.merge(drained, 0);
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Write an event into the ring of its level, caller must hold the lock
+     * Leaves the sequence number of the returned event in evictedSequence
+     * @return the event evicted or discarded to make room, or null
+     */
+    private LoggingEvent store(LoggingEvent event) {
+        long sequence = nextSequence++;
+        int slot = slotOf(event.getLevel());
+        SequencedRing partition = partitions[slot];
+        LoggingEvent evicted = null;
+        if (partition.isFull()) {
+            evictedSequence = partition.headSequence();
+            evicted = partition.poll();
+            size--;
+        } else if (size >= capacity) {
+            evicted = evictLeastSevere(slot);
+            if (evicted == null) {
+                evictedSequence = -1; // everything stored is more severe
+                return event;
+            }
+        }
+        partition.offer(event, sequence);
+        size++;
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, sequence);
+        }
+        return evicted;
+    }
+
+    /**
+     * Remove the oldest event of the least severe non-empty level, caller must hold the lock
+     * Leaves the sequence number of the removed event in evictedSequence
+     * @param maxSlot most severe level that may give up an event
+     * @return the removed event, or null if those levels are empty
+     */
+    private LoggingEvent evictLeastSevere(int maxSlot) {
+        for (int i = 0; i <= maxSlot; i++) {
+            if (partitions[i].size() > 0) {
+                evictedSequence = partitions[i].headSequence();
+                size--;
+                return partitions[i].poll();
+            }
+        }
+        return null;
+    }
+
+    private void notifyEvicted(LoggingEvent event, long sequence) {
+        EvictionListener listener = evictionListener;
+        if (event != null && listener != null) {
+            listener.onEvict(event, sequence);
+        }
+    }
+
+}
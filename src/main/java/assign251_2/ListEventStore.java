@@ -0,0 +1,178 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * EventStore backed by an injected List
+ * Evicts with remove(0), so the cost of eviction depends on the list type
+ */
+public class ListEventStore implements EventStore {
+
+    private final List<LoggingEvent> events;
+    private int capacity = 1000; // default max size
+    private long nextSequence = 0; // sequence number of the next added event
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Constructor for dependency injection
+     * @param eventsList the list to be injected for storing events
+     */
+    public ListEventStore(List<LoggingEvent> eventsList) {
+        if (eventsList == null) {
+            throw new IllegalArgumentException("Events list cannot be null");
+        }
+        this.events = eventsList;
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        LoggingEvent evicted = null;
+        long evictedSequence;
+        synchronized (events) {
+            evictedSequence = nextSequence - events.size();
+            if (events.size() >= capacity) {
+                evicted = events.remove(0); // remove oldest event
+            }
+            store(event);
+        }
+        notifyEvicted(evicted, evictedSequence);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        Evictions evicted = new Evictions();
+        synchronized (events) {
+            for (LoggingEvent event : batch) {
+                if (events.size() >= capacity) {
+                    long oldest = nextSequence - events.size();
+                    evicted.add(events.remove(0), oldest); // remove oldest event
+                }
+                store(event);
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    @Override
+    public EventSnapshot snapshotFrom(long fromSequence) {
+        synchronized (events) {
+            long firstSequence = nextSequence - events.size();
+            int skip = (int) Math.min(events.size(), Math.max(0, fromSequence - firstSequence));
+            return EventSnapshot.consecutive(
+                    new ArrayList<>(events.subList(skip, events.size())), firstSequence + skip);
+        }
+    }
+
+    @Override
+    public EventSnapshot snapshotPage(int offset, int limit) {
+        synchronized (events) {
+            int from = Math.min(offset, events.size());
+            int to = (int) Math.min(events.size(), (long) from + limit);
+            return EventSnapshot.consecutive(
+                    new ArrayList<>(events.subList(from, to)), nextSequence - events.size() + from);
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (events) {
+            return events.size();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Evictions evicted = new Evictions();
+        synchronized (events) {
+            this.capacity = capacity;
+
+            // Remove excess events if new capacity is smaller than current size
+            while (events.size() > capacity) {
+                long oldest = nextSequence - events.size();
+                evicted.add(events.remove(0), oldest);
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public boolean evictOldest() {
+        LoggingEvent evicted;
+        long evictedSequence;
+        synchronized (events) {
+            if (events.isEmpty()) {
+                return false;
+            }
+            evictedSequence = nextSequence - events.size();
+            evicted = events.remove(0);
+        }
+        notifyEvicted(evicted, evictedSequence);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (events) {
+            events.clear();
+        }
+    }
+
+    @Override
+    public EventSnapshot drainSnapshot() {
+        synchronized (events) {
+            List<LoggingEvent> drained = new ArrayList<>(events);
+            events.clear();
+            return EventSnapshot.consecutive(drained, nextSequence - drained.size());
+        }
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Get the injected list (for internal use and testing)
+     * @return the backing events list
+     */
+    List<LoggingEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Append an event and give it the next sequence number, caller must hold the lock
+     */
+    private void store(LoggingEvent event) {
+        events.add(event);
+        long sequence = nextSequence++;
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, sequence);
+        }
+    }
+
+    private void notifyEvicted(LoggingEvent event, long sequence) {
+        EvictionListener listener = evictionListener;
+        if (event != null && listener != null) {
+            listener.onEvict(event, sequence);
+        }
+    }
+}
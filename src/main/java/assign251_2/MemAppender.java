@@ -1,9 +1,24 @@
 package assign251_2;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
 
 /**
@@ -13,19 +28,54 @@ import org.apache.log4j.spi.LoggingEvent;
 public class MemAppender extends AppenderSkeleton {
 
     private static MemAppender instance;
-    private final List<LoggingEvent> events;
-    private long discardedLogCount = 0;
-    private int maxSize = 1000; // default max size
+    private final EventStore store;
+    private final boolean storeCountsBytes; // the store reports record bytes, so events are not estimated
+    // Running statistics, updated on append and evict and read without the store lock
+    private final LongAdder discardedLogCount = new LongAdder();
+    private final LongAdder retainedCount = new LongAdder();
+    private final LongAdder retainedChars = new LongAdder();
+    private final LongAdder retainedBytes = new LongAdder();
+    private final LongAdder[] retainedByLevel = newCounters(); // indexed like LevelPartitionedEventStore.LEVELS
+    private final LongAdder[] discardedByLevel = newCounters();
+    private static final int WRITE_CHUNK_CHARS = 64 * 1024; // batch size of drainTo writes
+    private static final int WRITE_CHUNK_BYTES = 64 * 1024; // buffer size of encoded drainTo writes
+    static final int DEFAULT_PARALLEL_FORMAT_THRESHOLD = 10000;
+    private volatile long maxBytes = 0; // 0 means no byte limit
+    private volatile EventIndex index; // null unless indexing is enabled
+    private volatile TextIndex textIndex; // null unless full-text indexing is enabled
+    private volatile int parallelFormatThreshold = DEFAULT_PARALLEL_FORMAT_THRESHOLD;
+    private volatile ForkJoinPool formatPool; // null means the common pool
+    private volatile FormatCache formatCache; // null unless formatted output is cached
+    private volatile boolean compactCapture;
+    private volatile boolean shutDown; // set by close; AppenderSkeleton.closed is not volatile and doAppend takes no lock
+    private final AdmissionControl admission = new AdmissionControl();
+
+    /**
+     * Default constructor using the built-in ring buffer storage
+     */
+    public MemAppender() {
+        this(new RingBufferEventStore());
+    }
 
     /**
      * Constructor for dependency injection
      * @param eventsList the list to be injected for storing events
      */
     public MemAppender(List<LoggingEvent> eventsList) {
-        if (eventsList == null) {
-            throw new IllegalArgumentException("Events list cannot be null");
+        this(new ListEventStore(eventsList));
+    }
+
+    /**
+     * Constructor for dependency injection of a storage engine
+     * @param store the event store holding the logging events
+     */
+    public MemAppender(EventStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("Event store cannot be null");
         }
-        this.events = eventsList;
+        this.store = store;
+        this.storeCountsBytes = store.getRecordBytes() >= 0;
+        store.setEvictionListener(new StoreListener());
     }
 
     /**
@@ -49,8 +99,7 @@ public class MemAppender extends AppenderSkeleton {
             instance = new MemAppender(eventsList, true);
         } else {
             // Reset the internal state when getting instance with new list
-            instance.events.clear();
-            instance.discardedLogCount = 0;
+            instance.clear();
         }
         return instance;
     }
@@ -83,22 +132,180 @@ public class MemAppender extends AppenderSkeleton {
         return new MemAppender(eventsList);
     }
 
+    /**
+     * Get a new independent instance using the given storage engine (bypass singleton)
+     * @param store the event store holding the logging events
+     * @return new MemAppender instance
+     */
+    public static synchronized MemAppender createNewInstance(EventStore store) {
+        return new MemAppender(store);
+    }
+
+    /**
+     * Unsynchronized version of AppenderSkeleton.doAppend
+     * The event store is thread safe on its own, so producers are not
+     * serialized on the appender monitor
+     * @param event the logging event to append
+     */
+    @Override
+    public void doAppend(LoggingEvent event) {
+        if (shutDown) {
+            LogLog.error("Attempted to append to closed appender named [" + name + "].");
+            return;
+        }
+        if (!isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+
+        Filter filter = getFilter();
+        while (filter != null) {
+            int decision = filter.decide(event);
+            if (decision == Filter.DENY) {
+                return;
+            }
+            if (decision == Filter.ACCEPT) {
+                break;
+            }
+            filter = filter.getNext();
+        }
+        append(event);
+    }
+
     /**
      * Append a logging event to memory storage
      * @param event the logging event to append
      */
     @Override
     protected void append(LoggingEvent event) {
-        if (event == null) {
-            return;
+        if (event == null || !admission.admit(event)) {
+            return; // suppressed events cost no capture, index or store work
+        }
+
+        Layout currentLayout = layout;
+        boolean readsContext = currentLayout instanceof VelocityLayout
+                && ((VelocityLayout) currentLayout).readsDiagnosticContext();
+        if (compactCapture) {
+            event = CapturedEvent.capture(event, readsContext); // lets the message object go
+        } else if (readsContext) {
+            // events are formatted later, often on another thread
+            event.getNDC();
+            event.getMDCCopy();
+        }
+        track(event, 1);
+        FormatCache cache = formatCache;
+        if (cache != null && cache.isOnAppend() && currentLayout != null) {
+            long version = FormatCache.versionOf(currentLayout);
+            retainedBytes.add(cache.put(currentLayout, version, event, format(currentLayout, event)));
+        }
+        TextIndex currentTextIndex = textIndex;
+        if (currentTextIndex == null) {
+            store.add(event);
+        } else {
+            currentTextIndex.prepare(event); // tokenize before the store takes its lock
+            try {
+                store.add(event);
+            } finally {
+                currentTextIndex.release();
+            }
+        }
+        enforceByteBudget();
+    }
+
+    /**
+     * Index an event the store has just taken, called under the store's lock
+     * @param event the stored event
+     * @param sequence the sequence number the store gave it
+     */
+    private void onStore(LoggingEvent event, long sequence) {
+        EventIndex currentIndex = index;
+        if (currentIndex != null) {
+            currentIndex.add(event, sequence);
+        }
+        TextIndex currentTextIndex = textIndex;
+        if (currentTextIndex != null) {
+            currentTextIndex.add(event, sequence);
+        }
+    }
+
+    /**
+     * Account for an event evicted by the store
+     * @param event the evicted event
+     * @param sequence the sequence number it was stored under, or -1 if it never was
+     */
+    private void onEvict(LoggingEvent event, long sequence) {
+        discardedLogCount.increment();
+        discardedByLevel[LevelPartitionedEventStore.slotOf(event.getLevel())].increment();
+        track(event, -1);
+        FormatCache cache = formatCache;
+        if (cache != null) {
+            retainedBytes.add(cache.remove(event));
+        }
+        unindex(sequence);
+    }
+
+    /**
+     * Account for an event a decoding store evicted without decoding it
+     * Only stores that do not retain instances send these, so there is no
+     * cached string to drop
+     * @param sequence the sequence number it was stored under
+     * @param level its level
+     * @param messageChars length of its rendered message
+     * @param estimatedBytes its estimated size as counted by track
+     */
+    private void onEvictRecord(long sequence, Level level, int messageChars, long estimatedBytes) {
+        int slot = LevelPartitionedEventStore.slotOf(level);
+        discardedLogCount.increment();
+        discardedByLevel[slot].increment();
+        retainedCount.decrement();
+        retainedByLevel[slot].decrement();
+        retainedChars.add(-messageChars);
+        retainedBytes.add(-estimatedBytes);
+        unindex(sequence);
+    }
+
+    /**
+     * Remove an event that left the store from the indexes
+     * @param sequence the sequence number it was stored under, or -1 if it never was
+     */
+    private void unindex(long sequence) {
+        if (sequence < 0) {
+            return; // never indexed
+        }
+        EventIndex currentIndex = index;
+        if (currentIndex != null) {
+            currentIndex.remove(sequence);
+        }
+        TextIndex currentTextIndex = textIndex;
+        if (currentTextIndex != null) {
+            currentTextIndex.remove(sequence);
+        }
+    }
+
+    /**
+     * Add an event to, or remove it from, the running statistics
+     * @param event the logging event
+     * @param sign 1 when the event is stored, -1 when it leaves the store
+     */
+    private void track(LoggingEvent event, int sign) {
+        String message = event.getRenderedMessage();
+        retainedCount.add(sign);
+        retainedByLevel[LevelPartitionedEventStore.slotOf(event.getLevel())].add(sign);
+        retainedChars.add(sign * (message != null ? message.length() : 0L));
+        if (!storeCountsBytes) {
+            retainedBytes.add(sign * EventSizeEstimator.estimate(event));
         }
+    }
 
-        synchronized (events) {
-            if (events.size() >= maxSize) {
-                events.remove(0); // remove oldest event
-                discardedLogCount++;
+    /**
+     * Evict oldest events until the retained size fits the byte budget
+     * The newest event is always kept, even if it is larger than the budget
+     */
+    private void enforceByteBudget() {
+        long budget = maxBytes;
+        while (budget > 0 && getRetainedBytes() > budget && retainedCount.sum() > 1) {
+            if (!store.evictOldest()) {
+                break;
             }
-            events.add(event);
         }
     }
 
@@ -107,63 +314,568 @@ public class MemAppender extends AppenderSkeleton {
      * @return unmodifiable list of current logging events
      */
     public List<LoggingEvent> getCurrentLogs() {
-        synchronized (events) {
-            return Collections.unmodifiableList(new ArrayList<>(events));
+        return Collections.unmodifiableList(store.snapshot());
+    }
+
+    /**
+     * Get the stored events whose sequence number is at least fromSequence
+     * Pollers can pass the last sequence they saw plus one to only fetch new events
+     * @param fromSequence smallest sequence number to include
+     * @return the matching events with their sequence numbers, oldest first
+     */
+    public EventSnapshot getLogsFrom(long fromSequence) {
+        return store.snapshotFrom(fromSequence);
+    }
+
+    /**
+     * Get a page of the stored events without copying the rest of the buffer
+     * @param offset position of the first event, 0 being the oldest
+     * @param limit maximum number of events
+     * @return the page with its sequence numbers, oldest first
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    public EventSnapshot getLogPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
         }
+        return store.snapshotPage(offset, limit);
+    }
+
+    /**
+     * Enable or disable the level, logger and time indexes used by query
+     * Indexing takes a short lock on every append and keeps a reference to
+     * every stored event, so it is off by default
+     * @param indexed true to maintain the indexes
+     */
+    public synchronized void setIndexed(boolean indexed) {
+        if (!indexed) {
+            index = null;
+            return;
+        }
+        if (index == null) {
+            EventIndex created = new EventIndex();
+            created.beginFill();
+            index = created; // publish first, so no append or eviction during the fill is missed
+            created.fill(store.snapshotFrom(0));
+        }
+    }
+
+    /**
+     * Check whether query uses the indexes
+     * @return true if indexing is enabled
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * Find stored events matching every given condition without copying the buffer
+     * Uses the indexes when enabled and scans the store otherwise
+     * @param minLevel lowest level to include, or null for any level
+     * @param loggerPrefix logger name or ancestor logger name (com.x matches
+     *                     com.x.Payment but not com.xyz; com.x. matches only
+     *                     loggers below com.x), or null for any logger
+     * @param fromTime earliest timestamp to include, in milliseconds
+     * @param toTime latest timestamp to include, in milliseconds
+     * @param limit maximum number of events, 0 for no limit
+     * @return unmodifiable list of the newest matching events, oldest first
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public List<LoggingEvent> query(Level minLevel, String loggerPrefix, long fromTime, long toTime, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        EventIndex currentIndex = index;
+        List<LoggingEvent> matches = currentIndex != null
+                ? currentIndex.query(minLevel, loggerPrefix, fromTime, toTime, limit)
+                : EventIndex.scan(store, minLevel, loggerPrefix, fromTime, toTime, limit);
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Enable or disable the inverted index over message terms used by search
+     * The index tokenizes every appended message under a short lock and keeps
+     * a reference to every stored event, so it is off by default
+     * @param textIndexed true to maintain the index
+     */
+    public synchronized void setTextIndexed(boolean textIndexed) {
+        if (!textIndexed) {
+            textIndex = null;
+            return;
+        }
+        if (textIndex == null) {
+            TextIndex created = new TextIndex();
+            created.beginFill();
+            textIndex = created; // publish first, so no append or eviction during the fill is missed
+            created.fill(store.snapshotFrom(0));
+        }
+    }
+
+    /**
+     * Check whether search uses the inverted index
+     * @return true if full-text indexing is enabled
+     */
+    public boolean isTextIndexed() {
+        return textIndex != null;
+    }
+
+    /**
+     * Find stored events whose message contains the given terms in order
+     * Terms are case-insensitive runs of letters, digits, '_' and '-', so
+     * "req-42 failed" matches "Request req-42 FAILED: timeout"
+     * @param text one or more terms; several terms are matched as a phrase
+     * @param limit maximum number of events, 0 for no limit
+     * @return unmodifiable list of the newest matching events, oldest first
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public List<LoggingEvent> search(String text, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        TextIndex currentTextIndex = textIndex;
+        List<LoggingEvent> matches = currentTextIndex != null
+                ? currentTextIndex.search(text, limit)
+                : TextIndex.scan(store, text, limit);
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Get the estimated heap used by the full-text index
+     * @return estimated index size in bytes, 0 if full-text indexing is disabled
+     */
+    public long getTextIndexBytes() {
+        TextIndex currentTextIndex = textIndex;
+        return currentTextIndex != null ? currentTextIndex.getEstimatedBytes() : 0;
+    }
+
+    /**
+     * Get number of distinct terms in the full-text index
+     * @return term count, 0 if full-text indexing is disabled
+     */
+    public int getTextIndexTermCount() {
+        TextIndex currentTextIndex = textIndex;
+        return currentTextIndex != null ? currentTextIndex.getTermCount() : 0;
+    }
+
+    /**
+     * Get the mean latency of indexed searches
+     * @return average search time in microseconds, 0 if there were none
+     */
+    public double getAverageSearchMicros() {
+        TextIndex currentTextIndex = textIndex;
+        return currentTextIndex != null ? currentTextIndex.getAverageQueryMicros() : 0;
     }
 
     /**
      * Get formatted event strings using the layout
+     * Events are formatted from a snapshot, so appends are never blocked
+     * while formatting. Once the buffer reaches the parallel format
+     * threshold and the layout is a VelocityLayout, the snapshot is
+     * formatted on the fork-join pool; the order of events is kept. Other
+     * layouts are not thread-safe and format under a lock on the layout. With
+     * format caching on, only events without a cached string are formatted.
      * @return unmodifiable list of formatted event strings
      * @throws IllegalStateException if layout is not set
      */
     public List<String> getEventStrings() {
-        if (layout == null) {
+        Layout currentLayout = layout;
+        if (currentLayout == null) {
             throw new IllegalStateException("Layout is not set. Cannot format events.");
         }
 
-        synchronized (events) {
+        int threshold = parallelFormatThreshold;
+        boolean parallel = threshold > 0 && currentLayout instanceof VelocityLayout && store.size() >= threshold;
+        FormatCache cache = formatCache;
+        if (!parallel && cache == null) {
             List<String> formattedEvents = new ArrayList<>();
-            for (LoggingEvent event : events) {
-                String formatted = layout.format(event);
+            for (LoggingEvent event : store) { // a snapshot; encoded stores decode while iterating
+                String formatted = format(currentLayout, event);
                 if (formatted != null) {
                     formattedEvents.add(formatted);
                 }
             }
             return Collections.unmodifiableList(formattedEvents);
         }
+
+        long version = FormatCache.versionOf(currentLayout); // before formatting, so a change meanwhile is noticed
+        if (cache != null) {
+            cache.beginFormat(); // before the snapshot, so evictions during formatting are seen
+        }
+        List<LoggingEvent> events = Collections.emptyList();
+        String[] formatted = new String[0];
+        try {
+            events = store.snapshot();
+            formatted = new String[events.size()];
+            if (cache != null) {
+                retainedBytes.add(cache.lookup(currentLayout, events, formatted));
+            }
+            if (parallel) {
+                ForkJoinPool pool = formatPool;
+                ParallelFormatter.formatMissing(currentLayout, events, formatted,
+                        pool != null ? pool : ForkJoinPool.commonPool());
+            } else {
+                for (int i = 0; i < formatted.length; i++) {
+                    if (formatted[i] == null) {
+                        formatted[i] = format(currentLayout, events.get(i));
+                    }
+                }
+            }
+        } finally {
+            if (cache != null) {
+                retainedBytes.add(cache.update(currentLayout, version, events, formatted));
+            }
+        }
+
+        List<String> formattedEvents = new ArrayList<>(formatted.length);
+        for (String text : formatted) {
+            if (text != null) {
+                formattedEvents.add(text);
+            }
+        }
+        return Collections.unmodifiableList(formattedEvents);
+    }
+
+    /**
+     * Set the buffer size from which getEventStrings formats in parallel
+     * Only VelocityLayout is formatted in parallel, other layouts may not be thread-safe
+     * @param threshold minimum number of buffered events, or 0 to always format on the calling thread
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public void setParallelFormatThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Parallel format threshold cannot be negative");
+        }
+        this.parallelFormatThreshold = threshold;
+    }
+
+    /**
+     * Get the buffer size from which getEventStrings formats in parallel
+     * @return minimum number of buffered events, or 0 if parallel formatting is disabled
+     */
+    public int getParallelFormatThreshold() {
+        return parallelFormatThreshold;
+    }
+
+    /**
+     * Set the pool used for parallel formatting
+     * @param pool the fork-join pool, or null for the common pool
+     */
+    public void setFormatPool(ForkJoinPool pool) {
+        this.formatPool = pool;
+    }
+
+    /**
+     * Enable or disable compact capture of appended events
+     * When enabled, each event is replaced on append by a compact copy holding
+     * its level, logger, thread name, timestamp, rendered message and
+     * throwable strings, so the buffer no longer keeps the caller's message
+     * object, Throwable or MDC map alive. The NDC and an MDC copy are kept
+     * only if the layout prints them. Events already buffered are not changed.
+     * @param compactCapture true to render and copy events on append
+     */
+    public void setCompactCapture(boolean compactCapture) {
+        this.compactCapture = compactCapture;
+    }
+
+    /**
+     * Check whether appended events are captured as compact copies
+     * @return true if compact capture is enabled
+     */
+    public boolean isCompactCapture() {
+        return compactCapture;
+    }
+
+    /**
+     * Enable or disable caching of formatted event strings
+     * Cached strings are reused by getEventStrings until the layout, its
+     * pattern or its date format changes, are dropped with their events and
+     * count toward the retained bytes and the byte budget
+     * @param cached true to keep the formatted string of each buffered event
+     * @param onAppend true to format events as they are appended rather than on first read;
+     *                 producers then share a lock on layouts other than VelocityLayout
+     * @throws IllegalStateException if the store returns decoded copies of events
+     */
+    public synchronized void setFormatCached(boolean cached, boolean onAppend) {
+        if (cached && !store.retainsInstances()) {
+            throw new IllegalStateException("Format caching needs a store that keeps event objects");
+        }
+        FormatCache previous = formatCache;
+        formatCache = cached ? new FormatCache(onAppend) : null;
+        if (previous != null) {
+            retainedBytes.add(previous.close());
+        }
+    }
+
+    /**
+     * Check whether formatted event strings are cached
+     * @return true if format caching is enabled
+     */
+    public boolean isFormatCached() {
+        return formatCache != null;
+    }
+
+    /**
+     * Get number of cached formatted strings
+     * @return cached string count, 0 if format caching is disabled
+     */
+    public int getFormatCacheSize() {
+        FormatCache cache = formatCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * Get the estimated heap used by cached formatted strings
+     * @return estimated size in bytes, included in getRetainedBytes
+     */
+    public long getFormatCacheBytes() {
+        FormatCache cache = formatCache;
+        return cache != null ? cache.getEstimatedBytes() : 0;
+    }
+
+    /**
+     * Set the layout, dropping strings cached with the previous one
+     * @param layout the new layout
+     */
+    @Override
+    public void setLayout(Layout layout) {
+        super.setLayout(layout);
+        clearFormatCache();
     }
 
     /**
      * Print all logs using layout and clear memory
      */
     public void printLogs() {
-        synchronized (events) {
-            if (layout != null) {
-                for (LoggingEvent event : events) {
-                    String formatted = layout.format(event);
-                    if (formatted != null) {
-                        System.out.print(formatted);
-                    }
+        try {
+            drainTo(new OutputStreamWriter(System.out, Charset.defaultCharset()));
+        } catch (IOException e) {
+            LogLog.error("Failed to print logs", e); // System.out does not throw
+        }
+    }
+
+    /**
+     * Remove all stored events and write them to a writer
+     * The store is swapped out first, then events are formatted and written
+     * in large chunks without holding any lock producers need. Events are
+     * formatted with the layout, or as the message and a line separator
+     * when there is no layout. The writer is flushed but not closed.
+     * @param writer destination of the formatted events
+     * @return number of events drained
+     * @throws IOException if writing fails; the drained events are then lost
+     */
+    public int drainTo(Writer writer) throws IOException {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+        int count = drainTo(writer::write);
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Remove all stored events and write them UTF-8 encoded to a stream
+     * @param out destination of the formatted events, flushed but not closed
+     * @return number of events drained
+     * @throws IOException if writing fails; the drained events are then lost
+     * @see #drainTo(Writer)
+     */
+    public int drainTo(OutputStream out) throws IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+        int count = drainBytes(bytes ->
+                out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()));
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Remove all stored events and write them UTF-8 encoded to a channel
+     * @param channel destination of the formatted events, left open
+     * @return number of events drained
+     * @throws IOException if writing fails; the drained events are then lost
+     * @see #drainTo(Writer)
+     */
+    public int drainTo(WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null");
+        }
+        return drainBytes(bytes -> {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        });
+    }
+
+    /**
+     * Remove all events from the store and release their accounting
+     * Only the drained events leave the indexes and the format cache, so
+     * events appended while the drain runs stay indexed
+     * @return the drained events, oldest first
+     */
+    private List<LoggingEvent> drainStore() {
+        EventSnapshot drained = store.drainSnapshot(); // O(1) swap for the ring stores
+        List<LoggingEvent> events = drained.getEvents();
+        FormatCache cache = formatCache;
+        for (int i = 0; i < events.size(); i++) {
+            LoggingEvent event = events.get(i);
+            track(event, -1);
+            if (cache != null) {
+                retainedBytes.add(cache.remove(event));
+            }
+            unindex(drained.getSequence(i));
+        }
+        return events;
+    }
+
+    private int drainTo(ChunkWriter sink) throws IOException {
+        List<LoggingEvent> events = drainStore();
+
+        Layout currentLayout = layout;
+        StringBuilder chunk = new StringBuilder(WRITE_CHUNK_CHARS + 256);
+        for (LoggingEvent event : events) {
+            String formatted = formatForDrain(currentLayout, event);
+            if (formatted != null) {
+                chunk.append(formatted);
+            }
+            if (chunk.length() >= WRITE_CHUNK_CHARS) {
+                sink.write(chunk.toString());
+                chunk.setLength(0);
+            }
+        }
+        if (chunk.length() > 0) {
+            sink.write(chunk.toString());
+        }
+        return events.size();
+    }
+
+    /**
+     * Drain the store into byte sinks
+     * A VelocityLayout encodes each event straight into one reused buffer;
+     * other layouts format to a String first. An event larger than the
+     * buffer is written on its own.
+     */
+    private int drainBytes(ByteSink sink) throws IOException {
+        List<LoggingEvent> events = drainStore();
+
+        Layout currentLayout = layout;
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK_BYTES);
+        for (LoggingEvent event : events) {
+            if (currentLayout instanceof VelocityLayout) {
+                VelocityLayout velocity = (VelocityLayout) currentLayout;
+                try {
+                    velocity.encode(event, buffer);
+                    continue;
+                } catch (BufferOverflowException e) {
+                    flush(buffer, sink);
                 }
-            } else {
-                for (LoggingEvent event : events) {
-                    Object message = event.getMessage();
-                    if (message != null) {
-                        System.out.println(message.toString());
-                    }
+                try {
+                    velocity.encode(event, buffer);
+                    continue;
+                } catch (BufferOverflowException e) {
+                    // larger than the whole buffer, written below
                 }
             }
-            events.clear();
+            String formatted = formatForDrain(currentLayout, event);
+            if (formatted == null) {
+                continue;
+            }
+            byte[] bytes = formatted.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                flush(buffer, sink);
+            }
+            if (bytes.length > buffer.remaining()) {
+                sink.write(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+        }
+        flush(buffer, sink);
+        return events.size();
+    }
+
+    private static void flush(ByteBuffer buffer, ByteSink sink) throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            sink.write(buffer);
+            buffer.clear();
         }
     }
 
+    /**
+     * Format one drained event with the layout, or as the message and a line
+     * separator when there is no layout
+     * @return the formatted event, or null if there is nothing to write
+     */
+    private static String formatForDrain(Layout currentLayout, LoggingEvent event) {
+        if (currentLayout != null) {
+            return format(currentLayout, event);
+        }
+        Object message = event.getMessage();
+        return message != null ? message + System.lineSeparator() : null;
+    }
+
+    /**
+     * Format an event with a layout that may be shared between threads
+     * VelocityLayout keeps no per-call state and runs concurrently; other
+     * layouts, such as PatternLayout with its shared buffer, expect the one
+     * caller at a time that AppenderSkeleton.doAppend guarantees, so they
+     * are serialized on the layout
+     * @param currentLayout the layout
+     * @param event the logging event
+     * @return the formatted event
+     */
+    private static String format(Layout currentLayout, LoggingEvent event) {
+        if (currentLayout instanceof VelocityLayout) {
+            return currentLayout.format(event);
+        }
+        synchronized (currentLayout) {
+            return currentLayout.format(event);
+        }
+    }
+
+    /**
+     * Destination of a batch of formatted events
+     */
+    private interface ChunkWriter {
+        void write(String chunk) throws IOException;
+    }
+
+    /**
+     * Destination of a buffer of encoded events, written from its position to its limit
+     */
+    private interface ByteSink {
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    /**
+     * Get the admission stage that rate limits and samples appended events
+     * Configure it to protect the buffer from a logging storm; by default it admits every event
+     * @return the admission control of this appender
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admission;
+    }
+
     /**
      * Get count of discarded logs
      * @return number of logs discarded due to size limits
      */
     public long getDiscardedLogCount() {
-        return discardedLogCount;
+        return discardedLogCount.sum();
+    }
+
+    /**
+     * Get count of discarded logs of one level
+     * Custom levels are counted with the standard level below them
+     * @param level the level
+     * @return number of logs of that level discarded due to size limits
+     */
+    public long getDiscardedLogCount(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        return discardedByLevel[LevelPartitionedEventStore.slotOf(level)].sum();
     }
 
     /**
@@ -176,15 +888,49 @@ public class MemAppender extends AppenderSkeleton {
             throw new IllegalArgumentException("Max size must be positive");
         }
 
-        synchronized (events) {
-            this.maxSize = maxSize;
+        store.setCapacity(maxSize); // excess events are reported as discarded
+    }
 
-            // Remove excess events if new maxSize is smaller than current size
-            while (events.size() > maxSize) {
-                events.remove(0);
-                discardedLogCount++;
-            }
+    /**
+     * Set the byte budget for stored events, used alongside maxSize
+     * Whichever limit is reached first evicts the oldest events
+     * @param maxBytes maximum estimated retained bytes, or 0 for no byte limit
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Max bytes cannot be negative");
         }
+
+        this.maxBytes = maxBytes;
+        enforceByteBudget();
+    }
+
+    /**
+     * Get the byte budget for stored events
+     * @return maximum estimated retained bytes, or 0 if there is no byte limit
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the estimated heap retained by the stored events
+     * For stores that encode events into memory they measure, such as
+     * OffHeapEventStore, this counts their record bytes instead
+     * @return estimated retained size in bytes
+     */
+    public long getRetainedBytes() {
+        long bytes = retainedBytes.sum();
+        return storeCountsBytes ? bytes + Math.max(0, store.getRecordBytes()) : bytes;
+    }
+
+    /**
+     * Get the total length of the stored messages
+     * @return number of characters in the rendered messages of stored events
+     */
+    public long getEstimatedSize() {
+        return retainedChars.sum();
     }
 
     /**
@@ -192,17 +938,37 @@ public class MemAppender extends AppenderSkeleton {
      * @return current maximum size
      */
     public int getMaxSize() {
-        return maxSize;
+        return store.getCapacity();
     }
 
     /**
      * Get current number of stored events
+     * Includes events an asynchronous store has accepted but not stored yet
      * @return current event count
      */
     public int getCurrentSize() {
-        synchronized (events) {
-            return events.size();
+        return (int) Math.max(0, retainedCount.sum());
+    }
+
+    /**
+     * Get current number of stored events of one level
+     * Custom levels are counted with the standard level below them
+     * @param level the level
+     * @return current event count of that level
+     */
+    public int getCurrentSize(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
         }
+        return (int) Math.max(0, retainedByLevel[LevelPartitionedEventStore.slotOf(level)].sum());
+    }
+
+    /**
+     * Wait until every appended event is visible in the stored logs
+     * Only asynchronous stores have pending events
+     */
+    public void flush() {
+        store.flush();
     }
 
     /**
@@ -210,11 +976,11 @@ public class MemAppender extends AppenderSkeleton {
      */
     @Override
     public void close() {
-        // Clean up resources if needed
-        synchronized (events) {
-            events.clear();
-            discardedLogCount = 0;
-        }
+        shutDown = true;
+        closed = true;
+        // Clean up resources, stopping any background drain thread
+        store.close();
+        clear();
     }
 
     /**
@@ -230,17 +996,85 @@ public class MemAppender extends AppenderSkeleton {
      * Clear all events and reset counters (for testing)
      */
     public void clear() {
-        synchronized (events) {
-            events.clear();
-            discardedLogCount = 0;
+        drainStore(); // keeps counters and indexes exact when appends race with the clear
+        discardedLogCount.reset();
+        for (LongAdder discarded : discardedByLevel) {
+            discarded.reset();
+        }
+        admission.resetCounts();
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[LevelPartitionedEventStore.LEVELS.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private void clearFormatCache() {
+        FormatCache cache = formatCache;
+        if (cache != null) {
+            retainedBytes.add(cache.clear());
         }
     }
 
     /**
      * Get the list of events (for internal use and testing)
-     * @return the internal events list
+     * @return the injected events list, or a snapshot for other storage engines
      */
     protected List<LoggingEvent> getEvents() {
-        return events;
+        if (store instanceof ListEventStore) {
+            return ((ListEventStore) store).getEvents();
+        }
+        return store.snapshot();
+    }
+
+    /**
+     * Get the storage engine holding the events
+     * @return the event store
+     */
+    public EventStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the dictionary the store uses for logger and thread names
+     * @return the symbol table, or null if the store keeps event objects as they are
+     */
+    public SymbolTable getSymbolTable() {
+        return store.getSymbolTable();
+    }
+
+    /**
+     * Receives the store's callbacks, which carry the sequence number the
+     * indexes are keyed by
+     */
+    private final class StoreListener implements EventStore.EvictionListener {
+
+        @Override
+        public void onEvict(LoggingEvent event) {
+            MemAppender.this.onEvict(event, -1);
+        }
+
+        @Override
+        public void onEvict(LoggingEvent event, long sequence) {
+            MemAppender.this.onEvict(event, sequence);
+        }
+
+        @Override
+        public void onStore(LoggingEvent event, long sequence) {
+            MemAppender.this.onStore(event, sequence);
+        }
+
+        @Override
+        public boolean needsEvictedEvents() {
+            return false; // the counters and indexes only need level, sizes and sequence
+        }
+
+        @Override
+        public void onEvictRecord(long sequence, Level level, int messageChars, long estimatedBytes) {
+            MemAppender.this.onEvictRecord(sequence, level, messageChars, estimatedBytes);
+        }
     }
 }
\ No newline at end of file
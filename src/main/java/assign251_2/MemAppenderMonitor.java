@@ -1,8 +1,17 @@
 package assign251_2;
 
 import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
 import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.ToLongFunction;
+import org.apache.log4j.Level;
 import org.apache.log4j.spi.LoggingEvent;
 
 /**
@@ -11,6 +20,11 @@ import org.apache.log4j.spi.LoggingEvent;
  */
 public class MemAppenderMonitor implements DynamicMBean {
 
+    private static final String[] EVENT_ITEMS = {"sequence", "timestamp", "level", "logger", "thread", "message"};
+    private static final CompositeType EVENT_TYPE = createEventType();
+    private static final String[] LEVEL_ITEMS = levelNames();
+    private static final CompositeType LEVEL_TYPE = createLevelType();
+
     private final MemAppender appender;
     private final String monitorName;
 
@@ -40,13 +54,49 @@ public class MemAppenderMonitor implements DynamicMBean {
             case "LogMessages":
                 return getLogMessages();
             case "EstimatedSize":
-                return getEstimatedSize();
+                return appender.getEstimatedSize();
             case "DiscardedLogCount":
                 return appender.getDiscardedLogCount();
             case "CurrentSize":
                 return appender.getCurrentSize();
             case "MaxSize":
                 return appender.getMaxSize();
+            case "MaxBytes":
+                return appender.getMaxBytes();
+            case "RetainedBytes":
+                return appender.getRetainedBytes();
+            case "SymbolCount":
+                return appender.getSymbolTable() != null ? appender.getSymbolTable().size() : 0;
+            case "SymbolHitRate":
+                return appender.getSymbolTable() != null ? appender.getSymbolTable().getHitRate() : 0.0;
+            case "HotCount":
+                return tieredStore() != null ? tieredStore().getHotCount() : appender.getCurrentSize();
+            case "ColdCount":
+                return tieredStore() != null ? tieredStore().getColdCount() : 0;
+            case "CompressionRatio":
+                return tieredStore() != null ? tieredStore().getCompressionRatio() : 1.0;
+            case "TextIndexTerms":
+                return appender.getTextIndexTermCount();
+            case "TextIndexBytes":
+                return appender.getTextIndexBytes();
+            case "AverageSearchMicros":
+                return appender.getAverageSearchMicros();
+            case "LevelCounts":
+                return levelValues(appender::getCurrentSize);
+            case "LevelDiscardedCounts":
+                return levelValues(appender::getDiscardedLogCount);
+            case "LevelCapacities":
+                return levelValues(level -> partitionedStore() != null ? partitionedStore().getLevelCapacity(level) : 0);
+            case "SuppressedCount":
+                return appender.getAdmissionControl().getSuppressedCount();
+            case "RateLimitedCount":
+                return appender.getAdmissionControl().getRateLimitedCount();
+            case "SampledOutCount":
+                return appender.getAdmissionControl().getSampledOutCount();
+            case "SampleKeepRate":
+                return appender.getAdmissionControl().getKeepRate();
+            case "LevelSuppressedCounts":
+                return levelValues(appender.getAdmissionControl()::getSuppressedCount);
             case "MonitorName":
                 return monitorName;
             default:
@@ -83,6 +133,29 @@ public class MemAppenderMonitor implements DynamicMBean {
             appender.clear();
             return "Logs cleared successfully";
         }
+        if ("getLogPage".equals(actionName)) {
+            return getLogPage(intParam(params, 0, "offset"), intParam(params, 1, "limit"));
+        }
+        if ("getLogsSince".equals(actionName)) {
+            if (params == null || params.length < 1 || !(params[0] instanceof Number)) {
+                throw new IllegalArgumentException("Missing parameter: sequence");
+            }
+            return getLogsSince(((Number) params[0]).longValue());
+        }
+        if ("queryLogs".equals(actionName)) {
+            if (params == null || params.length < 5) {
+                throw new IllegalArgumentException("Expected level, loggerPrefix, fromTime, toTime and limit");
+            }
+            return queryLogs((String) params[0], (String) params[1], longParam(params, 2, "fromTime"),
+                    longParam(params, 3, "toTime"), intParam(params, 4, "limit"));
+        }
+        if ("searchLogs".equals(actionName)) {
+            if (params == null || params.length < 1 || !(params[0] instanceof String)) {
+                throw new IllegalArgumentException("Missing parameter: text");
+            }
+            List<LoggingEvent> events = appender.search((String) params[0], intParam(params, 1, "limit"));
+            return toCompositeData(events, null, 0, events.size());
+        }
         throw new UnsupportedOperationException("Method not supported: " + actionName);
     }
 
@@ -94,11 +167,51 @@ public class MemAppenderMonitor implements DynamicMBean {
                 new MBeanAttributeInfo("DiscardedLogCount", "long", "Number of discarded logs", true, false, false),
                 new MBeanAttributeInfo("CurrentSize", "int", "Current number of stored logs", true, false, false),
                 new MBeanAttributeInfo("MaxSize", "int", "Maximum size limit", true, false, false),
+                new MBeanAttributeInfo("MaxBytes", "long", "Byte budget for stored logs, 0 if unlimited", true, false, false),
+                new MBeanAttributeInfo("RetainedBytes", "long", "Estimated heap retained by stored logs in bytes", true, false, false),
+                new MBeanAttributeInfo("SymbolCount", "int", "Number of interned logger and thread names", true, false, false),
+                new MBeanAttributeInfo("SymbolHitRate", "double", "Fraction of name lookups found in the dictionary", true, false, false),
+                new MBeanAttributeInfo("HotCount", "int", "Number of logs kept as live objects", true, false, false),
+                new MBeanAttributeInfo("ColdCount", "int", "Number of logs kept in compressed blocks", true, false, false),
+                new MBeanAttributeInfo("CompressionRatio", "double", "Uncompressed size of the cold blocks divided by their compressed size", true, false, false),
+                new MBeanAttributeInfo("TextIndexTerms", "int", "Number of distinct terms in the full-text index", true, false, false),
+                new MBeanAttributeInfo("TextIndexBytes", "long", "Estimated heap used by the full-text index in bytes", true, false, false),
+                new MBeanAttributeInfo("AverageSearchMicros", "double", "Mean latency of indexed searches in microseconds", true, false, false),
+                new MBeanAttributeInfo("LevelCounts", CompositeData.class.getName(), "Number of stored logs of each level", true, false, false),
+                new MBeanAttributeInfo("LevelDiscardedCounts", CompositeData.class.getName(), "Number of discarded logs of each level", true, false, false),
+                new MBeanAttributeInfo("LevelCapacities", CompositeData.class.getName(), "Capacity of each level in a level-partitioned store, 0 where only MaxSize applies", true, false, false),
+                new MBeanAttributeInfo("SuppressedCount", "long", "Number of logs refused by rate limits or sampling", true, false, false),
+                new MBeanAttributeInfo("RateLimitedCount", "long", "Number of logs refused by a level or logger rate limit", true, false, false),
+                new MBeanAttributeInfo("SampledOutCount", "long", "Number of logs dropped by adaptive sampling", true, false, false),
+                new MBeanAttributeInfo("SampleKeepRate", "double", "Fraction of sampled logs currently kept, 1 if sampling is off", true, false, false),
+                new MBeanAttributeInfo("LevelSuppressedCounts", CompositeData.class.getName(), "Number of suppressed logs of each level", true, false, false),
                 new MBeanAttributeInfo("MonitorName", "java.lang.String", "Name of the monitor", true, false, false)
         };
 
         MBeanOperationInfo[] operations = new MBeanOperationInfo[] {
-                new MBeanOperationInfo("clearLogs", "Clear all logs from the appender", null, "java.lang.String", MBeanOperationInfo.ACTION)
+                new MBeanOperationInfo("clearLogs", "Clear all logs from the appender", null, "java.lang.String", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("getLogPage", "Get up to limit stored logs starting at offset (0 is the oldest)",
+                        new MBeanParameterInfo[] {
+                                new MBeanParameterInfo("offset", "int", "Position of the first log to return"),
+                                new MBeanParameterInfo("limit", "int", "Maximum number of logs to return")
+                        }, CompositeData[].class.getName(), MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("getLogsSince", "Get stored logs with a sequence number greater than the given one",
+                        new MBeanParameterInfo[] {
+                                new MBeanParameterInfo("sequence", "long", "Last sequence number already seen, -1 for all logs")
+                        }, CompositeData[].class.getName(), MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("queryLogs", "Get the newest stored logs matching every condition; sequence is -1 in the results",
+                        new MBeanParameterInfo[] {
+                                new MBeanParameterInfo("level", "java.lang.String", "Lowest level to include, empty for any level"),
+                                new MBeanParameterInfo("loggerPrefix", "java.lang.String", "Logger or ancestor logger name, empty for any logger"),
+                                new MBeanParameterInfo("fromTime", "long", "Earliest timestamp in milliseconds, or a negative age such as -30000 for the last 30 seconds"),
+                                new MBeanParameterInfo("toTime", "long", "Latest timestamp in milliseconds, 0 for no limit"),
+                                new MBeanParameterInfo("limit", "int", "Maximum number of logs to return, 0 for no limit")
+                        }, CompositeData[].class.getName(), MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("searchLogs", "Get the newest stored logs whose message contains the given terms; sequence is -1 in the results",
+                        new MBeanParameterInfo[] {
+                                new MBeanParameterInfo("text", "java.lang.String", "Term or phrase such as a request id or error code"),
+                                new MBeanParameterInfo("limit", "int", "Maximum number of logs to return, 0 for no limit")
+                        }, CompositeData[].class.getName(), MBeanOperationInfo.INFO)
         };
 
         return new MBeanInfo(
@@ -121,16 +234,129 @@ public class MemAppenderMonitor implements DynamicMBean {
         return messages;
     }
 
-    private long getEstimatedSize() {
-        List<LoggingEvent> logs = appender.getCurrentLogs();
-        long totalSize = 0;
-        for (LoggingEvent event : logs) {
+    private CompositeData[] getLogPage(int offset, int limit) {
+        EventSnapshot page = appender.getLogPage(offset, limit); // copies only the page
+        return toCompositeData(page, 0, page.size());
+    }
+
+    private CompositeData[] getLogsSince(long sequence) {
+        EventSnapshot snapshot = appender.getLogsFrom(sequence + 1);
+        return toCompositeData(snapshot, 0, snapshot.size());
+    }
+
+    private CompositeData[] queryLogs(String level, String loggerPrefix, long fromTime, long toTime, int limit) {
+        Level minLevel = null;
+        if (level != null && !level.isEmpty()) {
+            minLevel = Level.toLevel(level, null);
+            if (minLevel == null) {
+                throw new IllegalArgumentException("Unknown level: " + level);
+            }
+        }
+        long from = fromTime < 0 ? System.currentTimeMillis() + fromTime : fromTime;
+        long to = toTime <= 0 ? Long.MAX_VALUE : toTime;
+        String prefix = loggerPrefix != null && !loggerPrefix.isEmpty() ? loggerPrefix : null;
+        List<LoggingEvent> events = appender.query(minLevel, prefix, from, to, limit);
+        return toCompositeData(events, null, 0, events.size());
+    }
+
+    private CompositeData[] toCompositeData(EventSnapshot snapshot, int from, int to) {
+        return toCompositeData(snapshot.getEvents(), snapshot, from, to);
+    }
+
+    /**
+     * Convert events to LogEvent composites
+     * @param snapshot source of sequence numbers, or null to report -1
+     */
+    private CompositeData[] toCompositeData(List<LoggingEvent> events, EventSnapshot snapshot, int from, int to) {
+        CompositeData[] result = new CompositeData[to - from];
+        for (int i = from; i < to; i++) {
+            LoggingEvent event = events.get(i);
             String message = event.getRenderedMessage();
-            if (message != null) {
-                totalSize += message.length();
+            Object[] values = {
+                    snapshot != null ? snapshot.getSequence(i) : -1L,
+                    event.getTimeStamp(),
+                    String.valueOf(event.getLevel()),
+                    event.getLoggerName(),
+                    event.getThreadName(),
+                    message != null ? message : "null"
+            };
+            try {
+                result[i - from] = new CompositeDataSupport(EVENT_TYPE, EVENT_ITEMS, values);
+            } catch (OpenDataException e) {
+                throw new IllegalStateException("Failed to convert log event", e);
             }
         }
-        return totalSize;
+        return result;
+    }
+
+    private TieredEventStore tieredStore() {
+        EventStore store = appender.getStore();
+        return store instanceof TieredEventStore ? (TieredEventStore) store : null;
+    }
+
+    private LevelPartitionedEventStore partitionedStore() {
+        EventStore store = appender.getStore();
+        return store instanceof LevelPartitionedEventStore ? (LevelPartitionedEventStore) store : null;
+    }
+
+    /**
+     * Build a LevelCounts composite with one value per standard level
+     * @param value reads the value of a level
+     */
+    private static CompositeData levelValues(ToLongFunction<Level> value) {
+        Object[] values = new Object[LEVEL_ITEMS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value.applyAsLong(LevelPartitionedEventStore.LEVELS[i]);
+        }
+        try {
+            return new CompositeDataSupport(LEVEL_TYPE, LEVEL_ITEMS, values);
+        } catch (OpenDataException e) {
+            throw new IllegalStateException("Failed to convert level counts", e);
+        }
+    }
+
+    private static int intParam(Object[] params, int index, String name) {
+        if (params == null || params.length <= index || !(params[index] instanceof Number)) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return ((Number) params[index]).intValue();
+    }
+
+    private static long longParam(Object[] params, int index, String name) {
+        if (params == null || params.length <= index || !(params[index] instanceof Number)) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return ((Number) params[index]).longValue();
+    }
+
+    private static CompositeType createEventType() {
+        try {
+            return new CompositeType("LogEvent", "A buffered log event", EVENT_ITEMS,
+                    new String[] {"Sequence number", "Timestamp in milliseconds", "Level",
+                            "Logger name", "Thread name", "Rendered message"},
+                    new OpenType<?>[] {SimpleType.LONG, SimpleType.LONG, SimpleType.STRING,
+                            SimpleType.STRING, SimpleType.STRING, SimpleType.STRING});
+        } catch (OpenDataException e) {
+            throw new IllegalStateException("Failed to create LogEvent type", e);
+        }
+    }
+
+    private static String[] levelNames() {
+        String[] names = new String[LevelPartitionedEventStore.LEVELS.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = LevelPartitionedEventStore.LEVELS[i].toString();
+        }
+        return names;
+    }
+
+    private static CompositeType createLevelType() {
+        OpenType<?>[] types = new OpenType<?>[LEVEL_ITEMS.length];
+        Arrays.fill(types, SimpleType.LONG);
+        try {
+            return new CompositeType("LevelCounts", "A value for each log level", LEVEL_ITEMS, LEVEL_ITEMS, types);
+        } catch (OpenDataException e) {
+            throw new IllegalStateException("Failed to create LevelCounts type", e);
+        }
     }
 
     /**
@@ -0,0 +1,388 @@
+package assign251_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * EventStore that keeps events as compact binary records in a direct ByteBuffer
+ * Each record holds the timestamp, level, logger and thread name ids, the
+ * message length in chars, and the UTF-8 rendered message and throwable
+ * lines, so the heap only holds a small index and the name dictionary however
+ * many events are buffered. LoggingEvent objects are rebuilt when a snapshot
+ * is taken. The store reports the slab bytes of its records through
+ * getRecordBytes, so MemAppender's byte budget counts those rather than a
+ * heap estimate of events that are not on the heap.
+ *
+ * Logger and thread names are interned in a bounded SymbolTable; when the
+ * table is full a new name is written into the record itself instead.
+ *
+ * The slab is used as a circular log: when a record does not fit, the oldest
+ * records are evicted until it does. Evicted records are only decoded for
+ * listeners that need the event; others get its level and sizes from the
+ * header. A null message or throwable is stored as length -1 and read back
+ * as null. NDC, MDC and location information are not kept, and custom levels
+ * are rebuilt through Level.toLevel.
+ */
+public class OffHeapEventStore implements EventStore {
+
+    private static final int INITIAL_SLOTS = 16;
+    // length, timestamp, level, logger id, thread id, message and throwable lengths
+    // and message chars
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 4 + 4 + 4 + 4 + 4;
+    private static final String FQCN = Logger.class.getName();
+
+    private final ByteBuffer slab;
+    private int[] offsets; // slab position of each record, oldest at head
+    private int head;
+    private int size;
+    private int capacity;
+    private int writePosition; // slab position after the newest record
+    private volatile long usedBytes; // written under the lock, read without it by getRecordBytes
+    private long nextSequence;
+    private final SymbolTable symbols;
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create an off-heap store for 1000 events in a 4MB slab
+     */
+    public OffHeapEventStore() {
+        this(1000, 4 << 20);
+    }
+
+    /**
+     * Create an off-heap store
+     * @param capacity maximum number of events to keep
+     * @param slabBytes size of the direct buffer holding the records
+     */
+    public OffHeapEventStore(int capacity, int slabBytes) {
+        this(capacity, slabBytes, new SymbolTable());
+    }
+
+    /**
+     * Create an off-heap store sharing a name dictionary
+     * @param capacity maximum number of events to keep
+     * @param slabBytes size of the direct buffer holding the records
+     * @param symbols dictionary for logger and thread names
+     */
+    public OffHeapEventStore(int capacity, int slabBytes, SymbolTable symbols) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (slabBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("Slab must hold at least one record header");
+        }
+        this.capacity = capacity;
+        this.offsets = new int[Math.min(capacity, INITIAL_SLOTS)];
+        this.slab = ByteBuffer.allocateDirect(slabBytes);
+        this.symbols = symbols;
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            store(event, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            for (LoggingEvent event : batch) {
+                store(event, evicted);
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public synchronized List<LoggingEvent> snapshot() {
+        List<LoggingEvent> copy = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            copy.add(decode(offsets[(head + i) % offsets.length]));
+        }
+        return copy;
+    }
+
+    @Override
+    public synchronized EventSnapshot snapshotFrom(long fromSequence) {
+        long firstSequence = nextSequence - size;
+        int skip = (int) Math.min(size, Math.max(0, fromSequence - firstSequence));
+        List<LoggingEvent> copy = new ArrayList<>(size - skip);
+        for (int i = skip; i < size; i++) {
+            copy.add(decode(offsets[(head + i) % offsets.length]));
+        }
+        return EventSnapshot.consecutive(copy, firstSequence + skip);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            while (size > capacity) {
+                removeOldest(evicted);
+            }
+            this.capacity = capacity;
+            if (offsets.length > capacity) {
+                resize(capacity);
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public boolean evictOldest() {
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            if (size == 0) {
+                return false;
+            }
+            removeOldest(evicted);
+        }
+        notifyEvicted(evicted);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        offsets = new int[Math.min(capacity, INITIAL_SLOTS)];
+        head = 0;
+        size = 0;
+        writePosition = 0;
+        usedBytes = 0;
+    }
+
+    @Override
+    public synchronized EventSnapshot drainSnapshot() {
+        EventSnapshot drained = snapshotFrom(0);
+        clear();
+        return drained;
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    @Override
+    public boolean retainsInstances() {
+        return false;
+    }
+
+    /**
+     * Get size of the direct buffer holding the records
+     * @return slab size in bytes
+     */
+    public int getSlabBytes() {
+        return slab.capacity();
+    }
+
+    /**
+     * Get number of slab bytes taken by stored records
+     * @return used bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    @Override
+    public long getRecordBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Encode an event at the end of the log, caller must hold the lock
+     * An event whose record is larger than the whole slab is reported as
+     * evicted straight away and does not take a sequence number
+     * @param evicted receives the events removed to make room, or null
+     */
+    private void store(LoggingEvent event, Evictions evicted) {
+        String rendered = event.getRenderedMessage();
+        byte[] message = rendered == null ? null : utf8(rendered);
+        String[] throwableLines = event.getThrowableStrRep();
+        byte[] throwable = throwableLines == null ? null : utf8(String.join("\n", throwableLines));
+        String loggerName = event.getLoggerName();
+        String threadName = event.getThreadName();
+        int loggerId = symbols.intern(loggerName);
+        int threadId = symbols.intern(threadName);
+        byte[] inlineLogger = loggerId < 0 ? utf8(loggerName) : null;
+        byte[] inlineThread = threadId < 0 ? utf8(threadName) : null;
+        int length = HEADER_BYTES + (message == null ? 0 : message.length) + (throwable == null ? 0 : throwable.length)
+                + (inlineLogger == null ? 0 : inlineLogger.length)
+                + (inlineThread == null ? 0 : inlineThread.length);
+        if (length > slab.capacity()) {
+            if (evicted != null) {
+                evicted.add(event, -1);
+            }
+            return;
+        }
+
+        if (size == capacity) {
+            removeOldest(evicted);
+        }
+        int position = reserve(length, evicted);
+        slab.putInt(position, length);
+        slab.putLong(position + 4, event.timeStamp);
+        slab.putInt(position + 12, event.getLevel().toInt());
+        slab.putInt(position + 16, inlineLogger == null ? loggerId : -1 - inlineLogger.length);
+        slab.putInt(position + 20, inlineThread == null ? threadId : -1 - inlineThread.length);
+        slab.putInt(position + 24, message == null ? -1 : message.length);
+        slab.putInt(position + 28, throwable == null ? -1 : throwable.length);
+        slab.putInt(position + 32, rendered == null ? 0 : rendered.length());
+        slab.position(position + HEADER_BYTES);
+        if (message != null) {
+            slab.put(message);
+        }
+        if (throwable != null) {
+            slab.put(throwable);
+        }
+        if (inlineLogger != null) {
+            slab.put(inlineLogger);
+        }
+        if (inlineThread != null) {
+            slab.put(inlineThread);
+        }
+
+        if (size == offsets.length) {
+            resize(Math.min(capacity, offsets.length * 2));
+        }
+        offsets[(head + size) % offsets.length] = position;
+        size++;
+        writePosition = position + length;
+        usedBytes += length;
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, nextSequence);
+        }
+        nextSequence++;
+    }
+
+    /**
+     * Find free slab space for a record, evicting the oldest records as needed
+     * @return position to write the record at
+     */
+    private int reserve(int length, Evictions evicted) {
+        while (size > 0) {
+            int start = offsets[head];
+            int position = writePosition + length <= slab.capacity() ? writePosition : 0;
+            boolean free;
+            if (start < writePosition) {
+                // live records sit in [start, writePosition)
+                free = position == writePosition || length <= start;
+            } else {
+                // live records wrap: [start, end of slab) and [0, writePosition)
+                free = position == writePosition && writePosition + length <= start;
+            }
+            if (free) {
+                return position;
+            }
+            removeOldest(evicted);
+        }
+        return 0;
+    }
+
+    private void removeOldest(Evictions evicted) {
+        int position = offsets[head];
+        usedBytes -= slab.getInt(position);
+        if (evicted != null) {
+            long sequence = nextSequence - size;
+            if (evicted.needsEvents()) {
+                evicted.add(decode(position), sequence);
+            } else {
+                // the appender counts record bytes through getRecordBytes, not per event
+                evicted.addRecord(sequence, Level.toLevel(slab.getInt(position + 12)),
+                        slab.getInt(position + 32), 0);
+            }
+        }
+        head = (head + 1) % offsets.length;
+        size--;
+    }
+
+    private LoggingEvent decode(int position) {
+        long timeStamp = slab.getLong(position + 4);
+        Level level = Level.toLevel(slab.getInt(position + 12));
+        int loggerRef = slab.getInt(position + 16);
+        int threadRef = slab.getInt(position + 20);
+        int messageLength = slab.getInt(position + 24);
+        int throwableLength = slab.getInt(position + 28);
+        String message = messageLength < 0 ? null : readUtf8(position + HEADER_BYTES, messageLength);
+        int inline = position + HEADER_BYTES + Math.max(0, messageLength);
+        ThrowableInformation throwable = null;
+        if (throwableLength >= 0) {
+            String lines = readUtf8(inline, throwableLength);
+            throwable = new ThrowableInformation(lines.split("\n", -1));
+            inline += throwableLength;
+        }
+        String loggerName;
+        if (loggerRef >= 0) {
+            loggerName = symbols.resolve(loggerRef);
+        } else {
+            loggerName = readUtf8(inline, -1 - loggerRef);
+            inline += -1 - loggerRef;
+        }
+        String threadName = threadRef >= 0 ? symbols.resolve(threadRef) : readUtf8(inline, -1 - threadRef);
+        return new LoggingEvent(FQCN, Logger.getLogger(loggerName), timeStamp, level, message,
+                threadName, throwable, null, null, null);
+    }
+
+    private String readUtf8(int position, int length) {
+        byte[] bytes = new byte[length];
+        slab.position(position);
+        slab.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy the record offsets into a new array of the given length, oldest at index 0
+     */
+    private void resize(int length) {
+        int[] resized = new int[length];
+        int firstPart = Math.min(size, offsets.length - head);
+        System.arraycopy(offsets, head, resized, 0, firstPart);
+        System.arraycopy(offsets, 0, resized, firstPart, size - firstPart);
+        offsets = resized;
+        head = 0;
+    }
+
+    private Evictions newEvictions() {
+        EvictionListener listener = evictionListener;
+        return listener != null ? new Evictions(listener.needsEvictedEvents()) : null;
+    }
+
+    private void notifyEvicted(Evictions evicted) {
+        if (evicted != null) {
+            evicted.notify(evictionListener);
+        }
+    }
+}
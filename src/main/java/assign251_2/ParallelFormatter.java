@@ -0,0 +1,68 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.log4j.Layout;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Formats a snapshot of events on a fork-join pool
+ * The snapshot is split into ranges that are formatted into one shared
+ * result array, so the output keeps the order of the events. Slots that
+ * already hold a string, such as cached ones, are skipped. Only layouts
+ * that are safe to call from many threads may be used; VelocityLayout is,
+ * log4j's own PatternLayout is not.
+ */
+final class ParallelFormatter {
+
+    static final int LEAF_SIZE = 1024; // events formatted by one task without splitting further
+
+    private ParallelFormatter() {
+    }
+
+    /**
+     * Format in parallel the events that have no string yet
+     * @param layout a thread-safe layout
+     * @param events the events to format, oldest first
+     * @param formatted the string of each event; null entries are filled in
+     * @param pool the pool to run on
+     */
+    static void formatMissing(Layout layout, List<LoggingEvent> events, String[] formatted, ForkJoinPool pool) {
+        pool.invoke(new FormatTask(layout, events, formatted, 0, formatted.length));
+    }
+
+    private static final class FormatTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Layout layout;
+        private final List<LoggingEvent> events;
+        private final String[] formatted;
+        private final int from;
+        private final int to;
+
+        FormatTask(Layout layout, List<LoggingEvent> events, String[] formatted, int from, int to) {
+            this.layout = layout;
+            this.events = events;
+            this.formatted = formatted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    if (formatted[i] == null) {
+                        formatted[i] = layout.format(events.get(i));
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FormatTask(layout, events, formatted, from, middle),
+                    new FormatTask(layout, events, formatted, middle, to));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Array-backed circular EventStore with O(1) append and eviction
+ * The array grows by doubling up to the capacity, so a large maxSize
+ * does not allocate its full backing array up front
+ */
+public class RingBufferEventStore implements EventStore {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private LoggingEvent[] slots;
+    private int head; // index of the oldest event
+    private int size;
+    private int capacity;
+    private long nextSequence; // sequence number of the next added event
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create a ring buffer with the default capacity of 1000 events
+     */
+    public RingBufferEventStore() {
+        this(1000);
+    }
+
+    /**
+     * Create a ring buffer with the given capacity
+     * @param capacity maximum number of events to keep
+     */
+    public RingBufferEventStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new LoggingEvent[Math.min(capacity, INITIAL_SLOTS)];
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        LoggingEvent evicted;
+        long evictedSequence;
+        synchronized (this) {
+            evictedSequence = nextSequence - size; // the oldest event, replaced if the ring is full
+            evicted = store(event);
+        }
+        notifyEvicted(evicted, evictedSequence);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        Evictions evicted = new Evictions();
+        synchronized (this) {
+            for (LoggingEvent event : batch) {
+                long oldest = nextSequence - size;
+                LoggingEvent replaced = store(event);
+                if (replaced != null) {
+                    evicted.add(replaced, oldest);
+                }
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public synchronized List<LoggingEvent> snapshot() {
+        List<LoggingEvent> copy = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            copy.add(slots[(head + i) % slots.length]);
+        }
+        return copy;
+    }
+
+    @Override
+    public synchronized EventSnapshot snapshotFrom(long fromSequence) {
+        long firstSequence = nextSequence - size;
+        int skip = (int) Math.min(size, Math.max(0, fromSequence - firstSequence));
+        List<LoggingEvent> copy = new ArrayList<>(size - skip);
+        for (int i = skip; i < size; i++) {
+            copy.add(slots[(head + i) % slots.length]);
+        }
+        return EventSnapshot.consecutive(copy, firstSequence + skip);
+    }
+
+    @Override
+    public synchronized EventSnapshot snapshotPage(int offset, int limit) {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min(size, (long) from + limit);
+        List<LoggingEvent> copy = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            copy.add(slots[(head + i) % slots.length]);
+        }
+        return EventSnapshot.consecutive(copy, nextSequence - size + from);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Evictions evicted = new Evictions();
+        synchronized (this) {
+            // Advance the head past excess events instead of shifting them
+            while (size > capacity) {
+                evicted.add(slots[head], nextSequence - size);
+                slots[head] = null;
+                head = (head + 1) % slots.length;
+                size--;
+            }
+            this.capacity = capacity;
+            if (slots.length > capacity) {
+                resize(capacity);
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public boolean evictOldest() {
+        LoggingEvent evicted;
+        long evictedSequence;
+        synchronized (this) {
+            if (size == 0) {
+                return false;
+            }
+            evictedSequence = nextSequence - size;
+            evicted = slots[head];
+            slots[head] = null;
+            head = (head + 1) % slots.length;
+            size--;
+        }
+        notifyEvicted(evicted, evictedSequence);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        slots = new LoggingEvent[Math.min(capacity, INITIAL_SLOTS)];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Swap in an empty array under the lock and copy the old one outside it,
+     * so producers are not held up by a large drain
+     */
+    @Override
+    public EventSnapshot drainSnapshot() {
+        LoggingEvent[] drainedSlots;
+        int drainedHead;
+        int drainedSize;
+        long firstSequence;
+        synchronized (this) {
+            drainedSlots = slots;
+            drainedHead = head;
+            drainedSize = size;
+            firstSequence = nextSequence - size;
+            clear();
+        }
+        List<LoggingEvent> drained = new ArrayList<>(drainedSize);
+        for (int i = 0; i < drainedSize; i++) {
+            drained.add(drainedSlots[(drainedHead + i) % drainedSlots.length]);
+        }
+        return EventSnapshot.consecutive(drained, firstSequence);
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Write an event into the ring, caller must hold the lock
+     * @return the event overwritten to make room, or null
+     */
+    private LoggingEvent store(LoggingEvent event) {
+        long sequence = nextSequence++;
+        LoggingEvent evicted = null;
+        if (size == capacity) {
+            evicted = slots[head]; // overwrite oldest event
+            slots[head] = event;
+            head = (head + 1) % slots.length;
+        } else {
+            if (size == slots.length) {
+                resize(Math.min(capacity, slots.length * 2));
+            }
+            slots[(head + size) % slots.length] = event;
+            size++;
+        }
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, sequence);
+        }
+        return evicted;
+    }
+
+    /**
+     * Copy the live events into a new array of the given length, oldest at index 0
+     * Uses at most two block copies for the wrapped halves of the ring
+     */
+    private void resize(int length) {
+        LoggingEvent[] resized = new LoggingEvent[length];
+        int firstPart = Math.min(size, slots.length - head);
+        System.arraycopy(slots, head, resized, 0, firstPart);
+        System.arraycopy(slots, 0, resized, firstPart, size - firstPart);
+        slots = resized;
+        head = 0;
+    }
+
+    private void notifyEvicted(LoggingEvent event, long sequence) {
+        EvictionListener listener = evictionListener;
+        if (event != null && listener != null) {
+            listener.onEvict(event, sequence);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Growable ring of events tagged with store-wide sequence numbers
+ * Building block for stores that split their events over several rings
+ * and merge them back by sequence on read. Not thread safe; the owning
+ * store guards each ring with a lock.
+ */
+final class SequencedRing {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private LoggingEvent[] events = new LoggingEvent[INITIAL_SLOTS];
+    private long[] sequences = new long[INITIAL_SLOTS];
+    private int head; // index of the oldest event
+    private int size;
+    int limit; // maximum number of events, 0 for no limit of its own
+
+    /**
+     * Create a ring
+     * @param limit maximum number of events, 0 for no limit of its own
+     */
+    SequencedRing(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Get number of events in the ring
+     * @return event count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the ring holds its limit
+     * @return true if another event would exceed the limit
+     */
+    boolean isFull() {
+        return limit > 0 && size >= limit;
+    }
+
+    /**
+     * Append the newest event
+     * @param event the logging event
+     * @param sequence its sequence number, larger than any in the ring
+     */
+    void offer(LoggingEvent event, long sequence) {
+        if (size == events.length) {
+            grow();
+        }
+        int index = (head + size) % events.length;
+        events[index] = event;
+        sequences[index] = sequence;
+        size++;
+    }
+
+    /**
+     * Remove the oldest event, the ring must not be empty
+     * @return the removed event
+     */
+    LoggingEvent poll() {
+        LoggingEvent event = events[head];
+        events[head] = null;
+        head = (head + 1) % events.length;
+        size--;
+        return event;
+    }
+
+    /**
+     * Get the sequence number of the oldest event
+     * @return its sequence number, or Long.MAX_VALUE if the ring is empty
+     */
+    long headSequence() {
+        return size == 0 ? Long.MAX_VALUE : sequences[head];
+    }
+
+    LoggingEvent eventAt(int position) {
+        return events[(head + position) % events.length];
+    }
+
+    long sequenceAt(int position) {
+        return sequences[(head + position) % sequences.length];
+    }
+
+    /**
+     * Move the contents into a new ring and leave this one empty
+     * Lets a store swap out its events under the lock and read them after
+     * @return a ring holding the events this ring held
+     */
+    SequencedRing takeAll() {
+        SequencedRing taken = new SequencedRing(limit);
+        taken.events = events;
+        taken.sequences = sequences;
+        taken.head = head;
+        taken.size = size;
+        clear();
+        return taken;
+    }
+
+    /**
+     * Copy the events whose sequence number is at least fromSequence into a new ring
+     * Lets a store copy a ring under its lock and merge the copies after
+     * @param fromSequence smallest sequence number to include
+     * @return a ring holding the matching events
+     */
+    SequencedRing copyFrom(long fromSequence) {
+        int first = firstAtLeast(fromSequence);
+        int count = size - first;
+        SequencedRing copy = new SequencedRing(limit);
+        copy.events = new LoggingEvent[Math.max(count, 1)];
+        copy.sequences = new long[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+            copy.events[i] = eventAt(first + i);
+            copy.sequences[i] = sequenceAt(first + i);
+        }
+        copy.size = count;
+        return copy;
+    }
+
+    /**
+     * Remove every event
+     */
+    void clear() {
+        events = new LoggingEvent[INITIAL_SLOTS];
+        sequences = new long[INITIAL_SLOTS];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Binary search for the first position holding a sequence number of at least fromSequence
+     */
+    int firstAtLeast(long fromSequence) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sequenceAt(mid) < fromSequence) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Merge rings by sequence number
+     * Used with a handful of rings, so the oldest head is found by a linear scan
+     * @param rings the rings to merge
+     * @param fromSequence smallest sequence number to include
+     * @return the events with their sequence numbers, oldest first
+     */
+    static EventSnapshot merge(SequencedRing[] rings, long fromSequence) {
+        return merge(rings, fromSequence, false);
+    }
+
+    /**
+     * Merge rings by LoggingEvent.timeStamp, then by sequence number
+     * For rings numbered independently, whose sequences say nothing about
+     * the order of events in different rings
+     * @param rings the rings to merge
+     * @param fromSequence smallest sequence number to include from each ring
+     * @return the events with their sequence numbers, oldest first
+     */
+    static EventSnapshot mergeByTime(SequencedRing[] rings, long fromSequence) {
+        return merge(rings, fromSequence, true);
+    }
+
+    /**
+     * Check whether the head of one ring comes before the head of another
+     * @param byTime compare timestamps before sequence numbers
+     */
+    static boolean before(SequencedRing ring, int position, SequencedRing other, int otherPosition, boolean byTime) {
+        if (byTime) {
+            long time = ring.eventAt(position).getTimeStamp();
+            long otherTime = other.eventAt(otherPosition).getTimeStamp();
+            if (time != otherTime) {
+                return time < otherTime;
+            }
+        }
+        return ring.sequenceAt(position) < other.sequenceAt(otherPosition);
+    }
+
+    private static EventSnapshot merge(SequencedRing[] rings, long fromSequence, boolean byTime) {
+        int[] positions = new int[rings.length];
+        int total = 0;
+        for (int i = 0; i < rings.length; i++) {
+            positions[i] = rings[i].firstAtLeast(fromSequence);
+            total += rings[i].size - positions[i];
+        }
+
+        List<LoggingEvent> merged = new ArrayList<>(total);
+        long[] order = new long[total];
+        for (int n = 0; n < total; n++) {
+            int oldest = -1;
+            for (int i = 0; i < rings.length; i++) {
+                if (positions[i] < rings[i].size
+                        && (oldest < 0 || before(rings[i], positions[i], rings[oldest], positions[oldest], byTime))) {
+                    oldest = i;
+                }
+            }
+            order[n] = rings[oldest].sequenceAt(positions[oldest]);
+            merged.add(rings[oldest].eventAt(positions[oldest]++));
+        }
+        return new EventSnapshot(merged, order);
+    }
+
+    private void grow() {
+        int length = events.length * 2;
+        LoggingEvent[] grownEvents = new LoggingEvent[length];
+        long[] grownSequences = new long[length];
+        int firstPart = Math.min(size, events.length - head);
+        System.arraycopy(events, head, grownEvents, 0, firstPart);
+        System.arraycopy(events, 0, grownEvents, firstPart, size - firstPart);
+        System.arraycopy(sequences, head, grownSequences, 0, firstPart);
+        System.arraycopy(sequences, 0, grownSequences, firstPart, size - firstPart);
+        events = grownEvents;
+        sequences = grownSequences;
+        head = 0;
+    }
+}
@@ -0,0 +1,279 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * EventStore split into N independent rings (stripes)
+ * Each producer thread writes to the stripe picked by its thread id, so
+ * threads on different stripes share no lock and no counter: every stripe
+ * numbers its own events, and the sequence number of an event is its
+ * stripe-local sequence * N + stripe index. Reads copy each stripe under its
+ * own lock and merge the copies outside every lock, by
+ * LoggingEvent.timeStamp and then by sequence number, into a single view.
+ * Producers are only held up while their own stripe is copied.
+ *
+ * Size limits are kept per stripe, so the global bounds are approximate:
+ * <ul>
+ * <li>each stripe keeps the newest ceil(maxSize / N) events of its threads,
+ * so the store never holds more than maxSize + N - 1 events</li>
+ * <li>when producers are unevenly spread a busy stripe evicts while others
+ * still have room; in the worst case (one busy thread) only
+ * ceil(maxSize / N) events are kept</li>
+ * <li>every event evicted from a stripe is reported, so discardedLogCount
+ * counts exactly the events dropped, but an event may be dropped while
+ * older events survive in quieter stripes</li>
+ * <li>sequence numbers are unique and increase within a stripe, but not
+ * across stripes, so snapshotFrom may miss events that a slower stripe adds
+ * after a poll, and a snapshot is not one instant across stripes</li>
+ * </ul>
+ */
+public class StripedEventStore implements EventStore {
+
+    private static final int PADDING = 8; // longs per counter, so counters of different stripes share no cache line
+
+    private final SequencedRing[] stripes;
+    private final long[] nextLocal; // stripe-local sequence of the next event, guarded by its stripe
+    private volatile int capacity;
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create a striped store with one stripe per available processor
+     * and the default capacity of 1000 events
+     */
+    public StripedEventStore() {
+        this(1000, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a striped store
+     * @param capacity maximum number of events to keep across all stripes
+     * @param stripeCount number of independent stripes
+     */
+    public StripedEventStore(int capacity, int stripeCount) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.capacity = capacity;
+        this.stripes = new SequencedRing[stripeCount];
+        this.nextLocal = new long[stripeCount * PADDING];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new SequencedRing(stripeCapacity(capacity));
+        }
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        int index = currentStripe();
+        SequencedRing stripe = stripes[index];
+        LoggingEvent evicted;
+        long evictedSequence;
+        synchronized (stripe) {
+            evictedSequence = stripe.headSequence(); // replaced if the stripe is full
+            evicted = store(index, event);
+        }
+        notifyEvicted(evicted, evictedSequence);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        int index = currentStripe();
+        SequencedRing stripe = stripes[index];
+        Evictions evicted = new Evictions();
+        synchronized (stripe) {
+            for (LoggingEvent event : batch) {
+                long oldest = stripe.headSequence();
+                LoggingEvent replaced = store(index, event);
+                if (replaced != null) {
+                    evicted.add(replaced, oldest);
+                }
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        return snapshotFrom(0).getEvents();
+    }
+
+    /**
+     * Copy each stripe under its own lock and merge the copies outside the locks
+     */
+    @Override
+    public EventSnapshot snapshotFrom(long fromSequence) {
+        SequencedRing[] copies = new SequencedRing[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                copies[i] = stripes[i].copyFrom(fromSequence);
+            }
+        }
+        return SequencedRing.mergeByTime(copies, 0);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SequencedRing stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        Evictions evicted = new Evictions();
+        for (SequencedRing stripe : stripes) {
+            synchronized (stripe) {
+                stripe.limit = stripeCapacity(capacity);
+                while (stripe.size() > stripe.limit) {
+                    long oldest = stripe.headSequence();
+                    evicted.add(stripe.poll(), oldest);
+                }
+            }
+        }
+        evicted.notify(evictionListener);
+    }
+
+    /**
+     * Evict the oldest head across all stripes, by timestamp and then by sequence number
+     */
+    @Override
+    public boolean evictOldest() {
+        while (true) {
+            SequencedRing oldestStripe = null;
+            LoggingEvent oldest = null;
+            long oldestSequence = Long.MAX_VALUE;
+            for (SequencedRing stripe : stripes) {
+                LoggingEvent head;
+                long headSequence;
+                synchronized (stripe) {
+                    if (stripe.size() == 0) {
+                        continue;
+                    }
+                    head = stripe.eventAt(0);
+                    headSequence = stripe.headSequence();
+                }
+                if (oldest == null || head.getTimeStamp() < oldest.getTimeStamp()
+                        || (head.getTimeStamp() == oldest.getTimeStamp() && headSequence < oldestSequence)) {
+                    oldest = head;
+                    oldestSequence = headSequence;
+                    oldestStripe = stripe;
+                }
+            }
+            if (oldestStripe == null) {
+                return false;
+            }
+            LoggingEvent evicted = null;
+            synchronized (oldestStripe) {
+                if (oldestStripe.headSequence() == oldestSequence) {
+                    evicted = oldestStripe.poll();
+                }
+            }
+            if (evicted != null) {
+                notifyEvicted(evicted, oldestSequence);
+                return true;
+            }
+            // the stripe's head was evicted concurrently, look again
+        }
+    }
+
+    @Override
+    public void clear() {
+        locked(0, () -> {
+            for (SequencedRing stripe : stripes) {
+                stripe.clear();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Swap out every stripe under all stripe locks and merge them outside the locks
+     */
+    @Override
+    public EventSnapshot drainSnapshot() {
+        SequencedRing[] drained = locked(0, () -> {
+            SequencedRing[] taken = new SequencedRing[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                taken[i] = stripes[i].takeAll();
+            }
+            return taken;
+        });
+        return SequencedRing.mergeByTime(drained, 0);
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Get number of stripes
+     * @return stripe count
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Write an event into a stripe, caller must hold the stripe's lock
+     * @param index the stripe index
+     * @return the event evicted to make room, or null
+     */
+    private LoggingEvent store(int index, LoggingEvent event) {
+        SequencedRing stripe = stripes[index];
+        LoggingEvent evicted = stripe.isFull() ? stripe.poll() : null;
+        long sequence = nextLocal[index * PADDING]++ * stripes.length + index;
+        stripe.offer(event, sequence);
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, sequence);
+        }
+        return evicted;
+    }
+
+    /**
+     * Run an action holding the locks of stripe index and every stripe after it
+     * Locks are always taken in stripe order, and producers hold one at a time
+     */
+    private <T> T locked(int index, Supplier<T> action) {
+        if (index == stripes.length) {
+            return action.get();
+        }
+        synchronized (stripes[index]) {
+            return locked(index + 1, action);
+        }
+    }
+
+    private int currentStripe() {
+        return (int) (Thread.currentThread().getId() % stripes.length);
+    }
+
+    private int stripeCapacity(int capacity) {
+        return (capacity + stripes.length - 1) / stripes.length;
+    }
+
+    private void notifyEvicted(LoggingEvent event, long sequence) {
+        EvictionListener listener = evictionListener;
+        if (event != null && listener != null) {
+            listener.onEvict(event, sequence);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package assign251_2;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded concurrent dictionary mapping repeated names to small integer ids
+ * Used for logger and thread names, which repeat across millions of events.
+ * Ids are never reassigned, so an id stays valid for the life of the table;
+ * once the table is full new names are not interned and intern returns -1.
+ * Lookups of known names take no lock.
+ */
+public final class SymbolTable {
+
+    /** Default number of names kept */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> names;
+    private volatile int size;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Create a table with the default capacity
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a table
+     * @param capacity maximum number of distinct names
+     */
+    public SymbolTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.names = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Get the id of a name, adding it if there is room
+     * @param name the name, null is treated as the empty string
+     * @return the id, or -1 if the name is new and the table is full
+     */
+    public int intern(String name) {
+        String key = name == null ? "" : name;
+        lookups.increment();
+        Integer id = ids.get(key);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+        if (size >= names.length()) {
+            return -1;
+        }
+        synchronized (this) { // only new names take the lock
+            id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (size >= names.length()) {
+                return -1;
+            }
+            int next = size;
+            names.set(next, key);
+            size = next + 1;
+            ids.put(key, next);
+            return next;
+        }
+    }
+
+    /**
+     * Get the name for an id
+     * @param id an id returned by intern
+     * @return the interned name
+     */
+    public String resolve(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return names.get(id);
+    }
+
+    /**
+     * Get number of interned names
+     * @return name count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get maximum number of names
+     * @return capacity
+     */
+    public int getCapacity() {
+        return names.length();
+    }
+
+    /**
+     * Get fraction of intern calls that found an existing name
+     * @return hit rate between 0 and 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+}
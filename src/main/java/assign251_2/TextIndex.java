@@ -0,0 +1,417 @@
+package assign251_2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Inverted index from message terms to the buffered events containing them
+ * Messages are split into lower-case terms of letters, digits, '_' and '-',
+ * so request ids such as req-7f3a and error codes such as E_TIMEOUT stay
+ * whole. A lookup intersects the postings of the query terms starting with
+ * the rarest one, then checks the term order for phrases, so its cost
+ * follows the number of candidates rather than the buffer size.
+ * Messages are tokenized outside the index lock: MemAppender prepares the
+ * terms of an event before handing it to the store, and add, called back
+ * under the store's lock on the same thread, only inserts the postings.
+ * Entries are keyed by the sequence number the store gave the event, and
+ * postings of evicted events are dropped as they reach the head of each list.
+ * Stores that evict out of order leave removed entries inside the lists, so
+ * once more entries have been removed since the last sweep than are live
+ * (plus COMPACT_SLACK) all lists are swept.
+ */
+final class TextIndex {
+
+    static final long ENTRY_OVERHEAD = 64; // Entry object and its two term array headers
+    static final long TERM_OVERHEAD = 96; // map entry, Posting, its deque and array
+    static final long REFERENCE_BYTES = 8; // one reference in a posting deque or term array
+    static final int COMPACT_SLACK = 64; // removals tolerated on top of size before a sweep
+
+    private final ArrayDeque<Entry> all = new ArrayDeque<>();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<Long, Entry> bySequence = new HashMap<>();
+    private long postingCount;
+    private long entryTerms; // term references held by entries still in all
+    private long termBytes;
+    private int size;
+    private int removedSinceCompact; // removed entries that may still sit inside a list
+    private Set<Long> removedWhileFilling; // sequence numbers evicted during fill, null otherwise
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final ThreadLocal<Terms> prepared = new ThreadLocal<>(); // terms of the event this thread is storing
+
+    /**
+     * Tokenize the message of an event before it is handed to the store,
+     * so add does not tokenize under the store's lock
+     * @param event the logging event about to be stored
+     */
+    void prepare(LoggingEvent event) {
+        prepared.set(new Terms(event));
+    }
+
+    /**
+     * Drop the terms prepared by this thread, once the store has taken the event
+     */
+    void release() {
+        prepared.remove();
+    }
+
+    /**
+     * Index the message of a stored event
+     * Uses the terms prepared by this thread for the event, or tokenizes the
+     * message if there are none, as for events a store adds on another thread
+     * @param event the logging event
+     * @param sequence the sequence number the store gave it
+     */
+    void add(LoggingEvent event, long sequence) {
+        Terms terms = prepared.get();
+        if (terms == null || terms.event != event) {
+            terms = new Terms(event);
+        }
+        add(terms, sequence);
+    }
+
+    private synchronized void add(Terms message, long sequence) {
+        if (bySequence.containsKey(sequence)) {
+            return; // already indexed
+        }
+        String[] terms = new String[message.terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            Posting posting = postings.get(message.terms[i]);
+            if (posting == null) {
+                posting = new Posting(message.terms[i]);
+                postings.put(posting.term, posting);
+                termBytes += EventSizeEstimator.estimate(posting.term);
+            }
+            terms[i] = posting.term; // share one String per term
+        }
+        String[] words = new String[message.termOf.length];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = terms[message.termOf[i]];
+        }
+        Entry entry = new Entry(message.event, sequence, words, terms);
+        bySequence.put(sequence, entry);
+        all.addLast(entry);
+        for (String term : entry.terms) {
+            postings.get(term).entries.addLast(entry);
+        }
+        postingCount += entry.terms.length;
+        entryTerms += entry.words.length + entry.terms.length;
+        size++;
+    }
+
+    /**
+     * Start recording evictions, before the index is published to the store's listener
+     * Call fill once the index receives onStore and onEvict callbacks
+     */
+    synchronized void beginFill() {
+        removedWhileFilling = new HashSet<>();
+    }
+
+    /**
+     * Index the messages of the events the store held when the index was published
+     * Events stored since then are already indexed and skipped, and events
+     * evicted since beginFill are left out
+     * @param stored snapshot taken after the index was published
+     */
+    synchronized void fill(EventSnapshot stored) {
+        Set<Long> removed = removedWhileFilling;
+        removedWhileFilling = null;
+        for (int i = 0; i < stored.size(); i++) {
+            long sequence = stored.getSequence(i);
+            if (removed == null || !removed.contains(sequence)) {
+                add(new Terms(stored.getEvents().get(i)), sequence);
+            }
+        }
+    }
+
+    /**
+     * Remove an evicted event
+     * @param sequence the sequence number the store gave it
+     */
+    synchronized void remove(long sequence) {
+        Entry entry = bySequence.remove(sequence);
+        if (entry == null) {
+            if (removedWhileFilling != null) {
+                removedWhileFilling.add(sequence); // may still be in the snapshot being filled
+            }
+            return;
+        }
+        entry.removed = true;
+        size--;
+        while (!all.isEmpty() && all.peekFirst().removed) {
+            Entry head = all.pollFirst();
+            entryTerms -= head.words.length + head.terms.length;
+        }
+        for (String term : entry.terms) {
+            purge(term);
+        }
+        if (++removedSinceCompact > size + COMPACT_SLACK) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove every entry
+     */
+    synchronized void clear() {
+        all.clear();
+        postings.clear();
+        bySequence.clear();
+        postingCount = 0;
+        entryTerms = 0;
+        termBytes = 0;
+        size = 0;
+        removedSinceCompact = 0;
+    }
+
+    /**
+     * Find events whose message contains the query terms in order
+     * @param text one or more terms; several terms are matched as a phrase
+     * @param limit maximum number of events, 0 for no limit
+     * @return the newest matching events, oldest first
+     */
+    List<LoggingEvent> search(String text, int limit) {
+        long start = System.nanoTime();
+        List<LoggingEvent> matches;
+        synchronized (this) {
+            matches = find(tokenize(text), limit);
+        }
+        queryCount.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return matches;
+    }
+
+    /**
+     * Linear scan used when the text index is disabled
+     * @param events the events to search, oldest first
+     * @param text one or more terms; several terms are matched as a phrase
+     * @param limit maximum number of events, 0 for no limit
+     * @return the newest matching events, oldest first
+     */
+    static List<LoggingEvent> scan(Iterable<LoggingEvent> events, String text, int limit) {
+        String[] phrase = tokenize(text);
+        ArrayDeque<LoggingEvent> matches = new ArrayDeque<>();
+        if (phrase.length == 0) {
+            return new ArrayList<>();
+        }
+        for (LoggingEvent event : events) {
+            if (containsPhrase(tokenize(event.getRenderedMessage()), phrase)) {
+                matches.addLast(event);
+                if (limit > 0 && matches.size() > limit) {
+                    matches.pollFirst();
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Get number of indexed events
+     * @return event count
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get number of distinct terms
+     * @return term count
+     */
+    synchronized int getTermCount() {
+        return postings.size();
+    }
+
+    /**
+     * Estimate the heap used by the index on top of the events themselves
+     * @return estimated size in bytes
+     */
+    synchronized long getEstimatedBytes() {
+        return all.size() * ENTRY_OVERHEAD + (postingCount + entryTerms) * REFERENCE_BYTES
+                + postings.size() * TERM_OVERHEAD + termBytes;
+    }
+
+    /**
+     * Get the mean time spent in search
+     * @return average query latency in microseconds, 0 before the first query
+     */
+    double getAverageQueryMicros() {
+        long count = queryCount.sum();
+        return count == 0 ? 0 : queryNanos.sum() / 1000.0 / count;
+    }
+
+    private List<LoggingEvent> find(String[] phrase, int limit) {
+        if (phrase.length == 0) {
+            return new ArrayList<>();
+        }
+        ArrayDeque<Entry> rarest = null;
+        for (String term : phrase) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                return new ArrayList<>(); // a term nobody used
+            }
+            if (rarest == null || posting.entries.size() < rarest.size()) {
+                rarest = posting.entries;
+            }
+        }
+
+        // newest first, so a limited lookup stops after limit matches
+        List<Entry> matches = new ArrayList<>();
+        Iterator<Entry> entries = rarest.descendingIterator();
+        while (entries.hasNext() && (limit == 0 || matches.size() < limit)) {
+            Entry entry = entries.next();
+            if (!entry.removed && (phrase.length == 1 || containsPhrase(entry.words, phrase))) {
+                matches.add(entry);
+            }
+        }
+        // striped stores may index slightly out of order
+        matches.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        List<LoggingEvent> events = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            events.add(entry.event);
+        }
+        return events;
+    }
+
+    /**
+     * Drop every removed entry from the list of all entries and every posting list
+     */
+    private void compact() {
+        Iterator<Entry> entries = all.iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.removed) {
+                entries.remove();
+                entryTerms -= entry.words.length + entry.terms.length;
+            }
+        }
+        Iterator<Posting> terms = postings.values().iterator();
+        while (terms.hasNext()) {
+            Posting posting = terms.next();
+            int before = posting.entries.size();
+            posting.entries.removeIf(entry -> entry.removed);
+            postingCount -= before - posting.entries.size();
+            if (posting.entries.isEmpty()) {
+                terms.remove();
+                termBytes -= EventSizeEstimator.estimate(posting.term);
+            }
+        }
+        removedSinceCompact = 0;
+    }
+
+    private void purge(String term) {
+        Posting posting = postings.get(term);
+        if (posting == null) {
+            return;
+        }
+        while (!posting.entries.isEmpty() && posting.entries.peekFirst().removed) {
+            posting.entries.pollFirst();
+            postingCount--;
+        }
+        if (posting.entries.isEmpty()) {
+            postings.remove(term);
+            termBytes -= EventSizeEstimator.estimate(term);
+        }
+    }
+
+    private static boolean containsPhrase(String[] words, String[] phrase) {
+        if (phrase.length == 0) {
+            return false;
+        }
+        for (int i = 0; i + phrase.length <= words.length; i++) {
+            int j = 0;
+            while (j < phrase.length && words[i + j].equals(phrase[j])) {
+                j++;
+            }
+            if (j == phrase.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split text into lower-case terms
+     * @param text the text, may be null
+     * @return the terms in order, possibly repeated
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean termChar = i < text.length() && isTermChar(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * Terms of one message, worked out before any lock is taken
+     */
+    private static final class Terms {
+        final LoggingEvent event;
+        final String[] terms; // distinct terms, in order of first use
+        final int[] termOf; // index into terms of each word, in message order
+
+        Terms(LoggingEvent event) {
+            String[] words = tokenize(event.getRenderedMessage());
+            Map<String, Integer> distinct = new HashMap<>();
+            List<String> order = new ArrayList<>();
+            this.event = event;
+            this.termOf = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                Integer index = distinct.putIfAbsent(words[i], order.size());
+                if (index == null) {
+                    index = order.size();
+                    order.add(words[i]);
+                }
+                termOf[i] = index;
+            }
+            this.terms = order.toArray(new String[0]);
+        }
+    }
+
+    private static final class Posting {
+        final String term;
+        final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+        Posting(String term) {
+            this.term = term;
+        }
+    }
+
+    private static final class Entry {
+        final LoggingEvent event;
+        final long sequence;
+        final String[] words; // terms in message order
+        final String[] terms; // distinct terms
+        boolean removed;
+
+        Entry(LoggingEvent event, long sequence, String[] words, String[] terms) {
+            this.event = event;
+            this.sequence = sequence;
+            this.words = words;
+            this.terms = terms;
+        }
+    }
+}
@@ -0,0 +1,579 @@
+package assign251_2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * Two-tier EventStore keeping recent events live and older ones compressed
+ * The newest hotCapacity events stay as LoggingEvent objects. Once another
+ * blockSize events have arrived, the oldest blockSize live events are
+ * serialized and deflated into an immutable cold block. The producer that
+ * crosses the threshold claims those events under the lock but compresses
+ * them after releasing it, so other producers and readers are not held up;
+ * the events stay in the hot tier until the block is installed. Readers
+ * copy the block references under the lock and inflate one block at a time
+ * while iterating, so a large history is never decoded all at once.
+ *
+ * Blocks keep the timestamp, level, logger and thread names, rendered message
+ * and throwable lines of each event; NDC, MDC and location information are
+ * dropped when an event is sealed. The level, message length and estimated
+ * size of each event are also kept uncompressed, so a listener that accepts
+ * eviction records is told about a cold eviction without inflating the block.
+ */
+public class TieredEventStore implements EventStore {
+
+    private static final String FQCN = Logger.class.getName();
+
+    private final int hotCapacity;
+    private final int blockSize;
+    private final ArrayDeque<LoggingEvent> hot = new ArrayDeque<>();
+    private final ArrayDeque<Block> cold = new ArrayDeque<>();
+    private final Object sealLock = new Object(); // one block is compressed at a time
+    private Deflater deflater; // guarded by sealLock, created on first seal and ended by close
+    private boolean sealing; // a producer is compressing the oldest hot events
+    private long sealFrom; // sequence number of the first event being compressed
+    private int capacity;
+    private int coldCount;
+    private int headSkip; // events already evicted from the oldest block
+    private List<LoggingEvent> decodedHead; // oldest block, inflated while it is being evicted
+    private long compressedBytes;
+    private long uncompressedBytes;
+    private long nextSequence;
+    private volatile EvictionListener evictionListener;
+
+    /**
+     * Create a tiered store for 10000 events, 1000 of them live,
+     * sealed in blocks of 256
+     */
+    public TieredEventStore() {
+        this(10000, 1000, 256);
+    }
+
+    /**
+     * Create a tiered store
+     * @param capacity maximum number of events to keep across both tiers
+     * @param hotCapacity number of newest events always kept live
+     * @param blockSize number of events compressed together into a cold block
+     */
+    public TieredEventStore(int capacity, int hotCapacity, int blockSize) {
+        if (capacity <= 0 || hotCapacity <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Capacity, hot capacity and block size must be positive");
+        }
+        this.capacity = capacity;
+        this.hotCapacity = hotCapacity;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void add(LoggingEvent event) {
+        Evictions evicted = newEvictions();
+        List<LoggingEvent> claimed;
+        synchronized (this) {
+            store(event, evicted);
+            claimed = claimSeal();
+        }
+        notifyEvicted(evicted);
+        seal(claimed);
+    }
+
+    @Override
+    public void addAll(List<LoggingEvent> batch) {
+        Evictions evicted = newEvictions();
+        List<LoggingEvent> claimed;
+        synchronized (this) {
+            for (LoggingEvent event : batch) {
+                store(event, evicted);
+            }
+            claimed = claimSeal();
+        }
+        notifyEvicted(evicted);
+        seal(claimed);
+    }
+
+    @Override
+    public List<LoggingEvent> snapshot() {
+        List<LoggingEvent> copy = new ArrayList<>(size());
+        for (LoggingEvent event : this) {
+            copy.add(event);
+        }
+        return copy;
+    }
+
+    @Override
+    public EventSnapshot snapshotFrom(long fromSequence) {
+        View view;
+        synchronized (this) {
+            view = view();
+        }
+        long firstSequence = view.lastSequence - view.size;
+        int skip = (int) Math.min(view.size, Math.max(0, fromSequence - firstSequence));
+        List<LoggingEvent> copy = new ArrayList<>(view.size - skip);
+        Iterator<LoggingEvent> events = view.iterator();
+        for (int i = 0; events.hasNext(); i++) {
+            LoggingEvent event = events.next();
+            if (i >= skip) {
+                copy.add(event);
+            }
+        }
+        return EventSnapshot.consecutive(copy, firstSequence + skip);
+    }
+
+    /**
+     * Iterate over both tiers, oldest first
+     * Cold blocks are inflated one at a time as the iterator reaches them
+     * @return iterator over a consistent view of the stored events
+     */
+    @Override
+    public Iterator<LoggingEvent> iterator() {
+        View view;
+        synchronized (this) {
+            view = view();
+        }
+        return view.iterator();
+    }
+
+    @Override
+    public synchronized int size() {
+        return coldCount + hot.size();
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            this.capacity = capacity;
+            while (coldCount + hot.size() > capacity) {
+                removeOldest(evicted);
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    @Override
+    public boolean evictOldest() {
+        Evictions evicted = newEvictions();
+        synchronized (this) {
+            if (coldCount + hot.size() == 0) {
+                return false;
+            }
+            removeOldest(evicted);
+        }
+        notifyEvicted(evicted);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        hot.clear();
+        cold.clear();
+        coldCount = 0;
+        headSkip = 0;
+        decodedHead = null;
+        compressedBytes = 0;
+        uncompressedBytes = 0;
+    }
+
+    @Override
+    public EventSnapshot drainSnapshot() {
+        View view;
+        synchronized (this) {
+            view = view();
+            clear();
+        }
+        List<LoggingEvent> drained = new ArrayList<>(view.size);
+        for (LoggingEvent event : view) {
+            drained.add(event);
+        }
+        return EventSnapshot.consecutive(drained, view.lastSequence - view.size);
+    }
+
+    /**
+     * Release the compressor's native memory
+     * Events added later still work; the next seal starts a new compressor
+     */
+    @Override
+    public void close() {
+        synchronized (sealLock) {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+        }
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    @Override
+    public boolean retainsInstances() {
+        return false; // cold events are decoded copies
+    }
+
+    /**
+     * Get number of events kept as live objects
+     * @return hot tier event count
+     */
+    public synchronized int getHotCount() {
+        return hot.size();
+    }
+
+    /**
+     * Get number of events kept in compressed blocks
+     * @return cold tier event count
+     */
+    public synchronized int getColdCount() {
+        return coldCount;
+    }
+
+    /**
+     * Get number of compressed blocks
+     * @return cold block count
+     */
+    public synchronized int getBlockCount() {
+        return cold.size();
+    }
+
+    /**
+     * Get size of the cold tier before compression divided by its size after
+     * @return compression ratio, 1 if there are no cold blocks
+     */
+    public synchronized double getCompressionRatio() {
+        return compressedBytes == 0 ? 1.0 : (double) uncompressedBytes / compressedBytes;
+    }
+
+    /**
+     * Get number of bytes held by the compressed blocks
+     * @return compressed cold tier size
+     */
+    public synchronized long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Add an event to the hot tier, caller must hold the lock
+     * @param evicted receives the events removed to stay within capacity, or null
+     */
+    private void store(LoggingEvent event, Evictions evicted) {
+        hot.addLast(event);
+        EvictionListener listener = evictionListener;
+        if (listener != null) {
+            listener.onStore(event, nextSequence);
+        }
+        nextSequence++;
+        while (coldCount + hot.size() > capacity) {
+            removeOldest(evicted);
+        }
+    }
+
+    /**
+     * Claim the oldest blockSize live events for compression, caller must hold the lock
+     * @return copies of the claimed events, or null if the hot tier is not full or another producer is sealing
+     */
+    private List<LoggingEvent> claimSeal() {
+        if (sealing || hot.size() < hotCapacity + blockSize) {
+            return null;
+        }
+        List<LoggingEvent> events = new ArrayList<>(blockSize);
+        Iterator<LoggingEvent> oldest = hot.iterator();
+        for (int i = 0; i < blockSize; i++) {
+            events.add(oldest.next());
+        }
+        sealing = true;
+        sealFrom = nextSequence - hot.size();
+        return events;
+    }
+
+    /**
+     * Compress claimed events outside the lock and install the block,
+     * repeating while producers filled the hot tier meanwhile
+     * @param claimed the events returned by claimSeal, or null
+     */
+    private void seal(List<LoggingEvent> claimed) {
+        while (claimed != null) {
+            Block block = null;
+            try {
+                block = compress(claimed);
+            } finally {
+                synchronized (this) {
+                    if (block != null) {
+                        install(block);
+                    }
+                    sealing = false;
+                    claimed = block != null ? claimSeal() : null;
+                }
+            }
+        }
+    }
+
+    private Block compress(List<LoggingEvent> events) {
+        synchronized (sealLock) {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+            }
+            return Block.encode(events, deflater);
+        }
+    }
+
+    /**
+     * Replace the claimed hot events with their block, caller must hold the lock
+     * Events evicted or cleared while the block was compressed are skipped
+     * in it. Eviction only reaches the hot tier when the cold tier is empty,
+     * so a block with skipped events becomes the oldest block.
+     */
+    private void install(Block block) {
+        long firstHot = nextSequence - hot.size();
+        int skip = (int) Math.min(block.count, Math.max(0, firstHot - sealFrom));
+        if (skip == block.count) {
+            return; // every claimed event is gone
+        }
+        for (int i = skip; i < block.count; i++) {
+            hot.pollFirst();
+        }
+        if (skip > 0) {
+            headSkip = skip;
+            decodedHead = null;
+        }
+        cold.addLast(block);
+        coldCount += block.count - skip;
+        compressedBytes += block.data.length;
+        uncompressedBytes += block.rawBytes;
+    }
+
+    private void removeOldest(Evictions evicted) {
+        long sequence = nextSequence - (coldCount + hot.size());
+        if (cold.isEmpty()) {
+            LoggingEvent event = hot.pollFirst();
+            if (evicted != null) {
+                evicted.add(event, sequence);
+            }
+            return;
+        }
+
+        Block head = cold.peekFirst();
+        if (evicted != null && evicted.needsEvents()) {
+            if (decodedHead == null) {
+                decodedHead = head.decode();
+            }
+            evicted.add(decodedHead.get(headSkip), sequence);
+        } else if (evicted != null) {
+            evicted.addRecord(sequence, head.levels[headSkip], head.messageChars[headSkip],
+                    head.estimatedBytes[headSkip]);
+        }
+        headSkip++;
+        coldCount--;
+        if (headSkip == head.count) {
+            cold.pollFirst();
+            compressedBytes -= head.data.length;
+            uncompressedBytes -= head.rawBytes;
+            headSkip = 0;
+            decodedHead = null;
+        }
+    }
+
+    /**
+     * Capture the current contents, caller must hold the lock
+     */
+    private View view() {
+        return new View(new ArrayList<>(cold), headSkip, new ArrayList<>(hot),
+                coldCount + hot.size(), nextSequence);
+    }
+
+    private Evictions newEvictions() {
+        EvictionListener listener = evictionListener;
+        return listener != null ? new Evictions(listener.needsEvictedEvents()) : null;
+    }
+
+    private void notifyEvicted(Evictions evicted) {
+        if (evicted != null) {
+            evicted.notify(evictionListener);
+        }
+    }
+
+    /**
+     * Point-in-time view of both tiers; blocks are immutable so they can be
+     * inflated after the lock is released
+     */
+    private static final class View implements Iterable<LoggingEvent> {
+        final List<Block> blocks;
+        final int headSkip;
+        final List<LoggingEvent> hot;
+        final int size;
+        final long lastSequence; // sequence number after the newest event
+
+        View(List<Block> blocks, int headSkip, List<LoggingEvent> hot, int size, long lastSequence) {
+            this.blocks = blocks;
+            this.headSkip = headSkip;
+            this.hot = hot;
+            this.size = size;
+            this.lastSequence = lastSequence;
+        }
+
+        @Override
+        public Iterator<LoggingEvent> iterator() {
+            return new Iterator<LoggingEvent>() {
+                private int block;
+                private List<LoggingEvent> current = Collections.emptyList();
+                private int position;
+                private int hotPosition;
+
+                @Override
+                public boolean hasNext() {
+                    while (position == current.size() && block < blocks.size()) {
+                        current = blocks.get(block).decode();
+                        position = block == 0 ? headSkip : 0;
+                        block++;
+                    }
+                    return position < current.size() || hotPosition < hot.size();
+                }
+
+                @Override
+                public LoggingEvent next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (position < current.size()) {
+                        return current.get(position++);
+                    }
+                    return hot.get(hotPosition++);
+                }
+            };
+        }
+    }
+
+    /**
+     * Deflated, serialized run of events, with the fields eviction records need
+     */
+    private static final class Block {
+        final byte[] data;
+        final int count;
+        final int rawBytes;
+        final Level[] levels;
+        final int[] messageChars;
+        final long[] estimatedBytes; // EventSizeEstimator estimate of each event as it was added
+
+        private Block(byte[] data, int count, int rawBytes, Level[] levels, int[] messageChars, long[] estimatedBytes) {
+            this.data = data;
+            this.count = count;
+            this.rawBytes = rawBytes;
+            this.levels = levels;
+            this.messageChars = messageChars;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        static Block encode(List<LoggingEvent> events, Deflater deflater) {
+            int count = events.size();
+            Level[] levels = new Level[count];
+            int[] messageChars = new int[count];
+            long[] estimatedBytes = new long[count];
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(raw)) {
+                for (int i = 0; i < count; i++) {
+                    LoggingEvent event = events.get(i);
+                    String message = event.getRenderedMessage();
+                    levels[i] = event.getLevel();
+                    messageChars[i] = message != null ? message.length() : 0;
+                    estimatedBytes[i] = EventSizeEstimator.estimate(event);
+                    out.writeLong(event.timeStamp);
+                    out.writeInt(event.getLevel().toInt());
+                    writeString(out, event.getLoggerName());
+                    writeString(out, event.getThreadName());
+                    writeString(out, message);
+                    String[] throwable = event.getThrowableStrRep();
+                    out.writeInt(throwable == null ? -1 : throwable.length);
+                    if (throwable != null) {
+                        for (String line : throwable) {
+                            writeString(out, line);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to serialize events", e); // in-memory streams do not fail
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 4 + 64);
+            deflater.reset();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+                raw.writeTo(out);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to compress events", e);
+            }
+            return new Block(compressed.toByteArray(), count, raw.size(), levels, messageChars, estimatedBytes);
+        }
+
+        List<LoggingEvent> decode() {
+            List<LoggingEvent> events = new ArrayList<>(count);
+            try (DataInputStream in = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(data)))) {
+                for (int i = 0; i < count; i++) {
+                    long timeStamp = in.readLong();
+                    Level level = Level.toLevel(in.readInt());
+                    String loggerName = readString(in);
+                    String threadName = readString(in);
+                    String message = readString(in);
+                    int lines = in.readInt();
+                    ThrowableInformation throwable = null;
+                    if (lines >= 0) {
+                        String[] rep = new String[lines];
+                        for (int j = 0; j < lines; j++) {
+                            rep[j] = readString(in);
+                        }
+                        throwable = new ThrowableInformation(rep);
+                    }
+                    events.add(new LoggingEvent(FQCN, Logger.getLogger(loggerName), timeStamp, level,
+                            message, threadName, throwable, null, null, null));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt event block", e);
+            }
+            return events;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package assign251_2;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.RuntimeServices;
+
+/**
+ * Shared pool of Velocity runtimes keyed by configuration
+ * Layouts with the same engine properties share one initialized runtime,
+ * so creating many layouts only pays the engine setup once per configuration
+ */
+final class VelocityEngines {
+
+    private static final Map<Map<String, String>, RuntimeServices> ENGINES = new ConcurrentHashMap<>();
+
+    private VelocityEngines() {
+    }
+
+    /**
+     * Default engine properties used by VelocityLayout
+     * @return a new Properties object with the default configuration
+     */
+    static Properties defaultProperties() {
+        Properties props = new Properties();
+        props.setProperty("resource.loader", "class");
+        props.setProperty("class.resource.loader.class",
+                "org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader");
+        return props;
+    }
+
+    /**
+     * Get the initialized runtime for a configuration, creating it on first use
+     * @param properties the engine properties
+     * @return the shared runtime for this configuration
+     */
+    static RuntimeServices get(Properties properties) {
+        return ENGINES.computeIfAbsent(keyOf(properties), key -> create(properties));
+    }
+
+    private static RuntimeServices create(Properties properties) {
+        try {
+            RuntimeInstance runtime = new RuntimeInstance();
+            runtime.init(properties);
+            return runtime;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to initialize Velocity engine", e);
+        }
+    }
+
+    private static Map<String, String> keyOf(Properties properties) {
+        Map<String, String> key = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            key.put(name, properties.getProperty(name));
+        }
+        return key;
+    }
+}
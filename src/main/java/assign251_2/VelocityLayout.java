@@ -1,20 +1,45 @@
 package assign251_2;
 
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
 import org.apache.log4j.spi.LoggingEvent;
-import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
 /**
  * Custom Log4j Layout using Velocity template engine
- * Supports variables: $c, $d, $m, $p, $t, $n
+ * Supports variables: $c, $d, $m, $p, $t, $n, $x (NDC), $X{key} (MDC) and
+ * $throwable (the stack trace lines, empty without a throwable)
+ * $d is rendered in the Date.toString format unless a date format is set
+ * Patterns using only these variables and plain text are compiled once and
+ * formatted without Velocity; other patterns are parsed once into a cached
+ * template that is merged for every event
+ * Each layout uses a Velocity runtime shared by layouts with the same engine
+ * properties, created lazily the first time a pattern needs it
  */
 public class VelocityLayout extends Layout {
 
-    private String pattern;
-    private boolean velocityInitialized = false;
+    private static final int MAX_REUSED_BUILDER = 16 * 1024;
+    private static final Pattern MDC_REFERENCE = Pattern.compile("\\$!?X\\{([A-Za-z0-9_.-]+)\\}");
+    private static final Pattern CONTEXT_REFERENCE = Pattern.compile("\\$!?\\{?[xX]\\b");
+    private static final Pattern THROWABLE_REFERENCE = Pattern.compile("\\$!?\\{?throwable\\b");
+    private static final ThreadLocal<StringBuilder> BUILDER =
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final Properties engineProperties;
+    private volatile RuntimeServices engine;
+    private volatile ParsedPattern parsed;
+    private volatile DateRenderer dates = new DateRenderer(DateRenderer.DEFAULT);
+    private final AtomicLong version = new AtomicLong(); // changes whenever the output for an event could change
 
     /**
      * Default constructor with default pattern
@@ -28,26 +53,52 @@ public class VelocityLayout extends Layout {
      * @param pattern the velocity template pattern
      */
     public VelocityLayout(String pattern) {
-        this.pattern = pattern;
-        initializeVelocity();
+        this(pattern, VelocityEngines.defaultProperties());
+    }
+
+    /**
+     * Constructor with custom pattern and engine configuration
+     * @param pattern the velocity template pattern
+     * @param engineProperties the Velocity engine properties
+     */
+    public VelocityLayout(String pattern, Properties engineProperties) {
+        if (engineProperties == null) {
+            throw new IllegalArgumentException("Engine properties cannot be null");
+        }
+        this.engineProperties = (Properties) engineProperties.clone();
+        setPattern(pattern);
     }
 
     /**
-     * Initialize Velocity engine
+     * Get the Velocity runtime, initializing it on first use
+     * @return the runtime shared by layouts with the same configuration
      */
-    private void initializeVelocity() {
-        if (!velocityInitialized) {
+    private RuntimeServices engine() {
+        RuntimeServices current = engine;
+        if (current == null) {
+            current = VelocityEngines.get(engineProperties);
+            engine = current;
+        }
+        return current;
+    }
+
+    /**
+     * Prepare the layout before the first real event
+     * Initializes the engine and parses the pattern if it needs Velocity, then
+     * renders a sample event so the first logged event doesn't hit a cold path
+     */
+    public void warmUp() {
+        ParsedPattern current = parsed;
+        if (current.compiled == null) {
             try {
-                Properties props = new Properties();
-                props.setProperty("resource.loader", "class");
-                props.setProperty("class.resource.loader.class",
-                        "org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader");
-                Velocity.init(props);
-                velocityInitialized = true;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to initialize Velocity engine", e);
+                current.template(engine());
+            } catch (RuntimeException e) {
+                // Broken patterns use the fallback format, nothing to warm up
             }
         }
+        format(new LoggingEvent(VelocityLayout.class.getName(),
+                Logger.getLogger(VelocityLayout.class), System.currentTimeMillis(),
+                Level.INFO, "warm-up", null));
     }
 
     /**
@@ -57,19 +108,25 @@ public class VelocityLayout extends Layout {
      */
     @Override
     public String format(LoggingEvent event) {
-        VelocityContext context = new VelocityContext();
+        ParsedPattern current = parsed;
+        CompiledPattern fastPath = current.compiled;
+        if (fastPath != null) {
+            StringBuilder builder = BUILDER.get();
+            builder.setLength(0);
+            fastPath.appendTo(builder, event, dates);
+            String formatted = builder.toString();
+            if (builder.capacity() > MAX_REUSED_BUILDER) {
+                BUILDER.remove(); // don't keep a huge buffer alive per thread
+            }
+            return formatted;
+        }
 
-        // Populate context with supported variables
-        context.put("c", event.getLoggerName());  // logger name
-        context.put("d", new Date(event.timeStamp));  // date
-        context.put("m", event.getRenderedMessage());  // message
-        context.put("p", event.getLevel().toString());  // priority/level
-        context.put("t", event.getThreadName());  // thread name
-        context.put("n", System.lineSeparator());  // line separator
+        // Variables are resolved only when the template reads them
+        EventContext context = new EventContext(event, dates);
 
         try {
             StringWriter writer = new StringWriter();
-            Velocity.evaluate(context, writer, "VelocityLayout", pattern);
+            current.template(engine()).merge(context, writer);
             return writer.toString();
         } catch (Exception e) {
             // Fallback to simple format if velocity fails
@@ -79,12 +136,63 @@ public class VelocityLayout extends Layout {
         }
     }
 
+    /**
+     * Format a logging event as UTF-8 directly into a caller-supplied buffer
+     * Compiled patterns are encoded without building an intermediate String
+     * or byte array; patterns that need Velocity are formatted and then
+     * encoded. On overflow the buffer position is left unchanged, so the
+     * caller can flush or grow the buffer and try again.
+     * @param event the logging event to format
+     * @param out the buffer to write to, from its current position
+     * @return number of bytes written
+     * @throws BufferOverflowException if the formatted event does not fit in the remaining space
+     */
+    public int encode(LoggingEvent event, ByteBuffer out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Buffer cannot be null");
+        }
+        int start = out.position();
+        try {
+            CompiledPattern fastPath = parsed.compiled;
+            if (fastPath != null) {
+                fastPath.encodeTo(out, event, dates);
+            } else {
+                CompiledPattern.putUtf8(format(event), out);
+            }
+        } catch (BufferOverflowException e) {
+            out.position(start); // drop the partly written event
+            throw e;
+        }
+        return out.position() - start;
+    }
+
     /**
      * Set the velocity pattern
      * @param pattern the velocity template pattern
      */
     public void setPattern(String pattern) {
-        this.pattern = pattern;
+        this.parsed = new ParsedPattern(pattern); // drops the cached template of the old pattern
+        version.incrementAndGet();
+    }
+
+    /**
+     * Set how $d renders timestamps
+     * @param dateFormat DEFAULT for Date.toString, ISO8601, EPOCH for milliseconds
+     *                   since the epoch, or a DateTimeFormatter pattern such as
+     *                   HH:mm:ss.SSS; null or empty means DEFAULT
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public void setDateFormat(String dateFormat) {
+        this.dates = new DateRenderer(dateFormat);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get the date format used for $d
+     * @return the date format
+     */
+    public String getDateFormat() {
+        return dates.getFormat();
     }
 
     /**
@@ -92,16 +200,50 @@ public class VelocityLayout extends Layout {
      * @return current velocity pattern
      */
     public String getPattern() {
-        return pattern;
+        return parsed.pattern;
+    }
+
+    /**
+     * Get a counter that changes with the pattern or date format, so cached
+     * output can tell it is stale
+     * @return the configuration version
+     */
+    long getVersion() {
+        return version.get();
     }
 
     /**
-     * Ignore throwable - not implemented in this layout
-     * @return empty string
+     * Check whether the current pattern is formatted without the Velocity engine
+     * @return true if the pattern was compiled into a direct formatter
+     */
+    boolean isCompiled() {
+        return parsed.compiled != null;
+    }
+
+    /**
+     * Check whether the Velocity runtime has been set up for this layout
+     * @return true once a pattern has needed the engine
+     */
+    boolean isEngineInitialized() {
+        return engine != null;
+    }
+
+    /**
+     * Check whether the pattern reads the MDC or NDC, which a buffering
+     * appender must then capture while still on the logging thread
+     * @return true if the pattern references $x or $X
+     */
+    boolean readsDiagnosticContext() {
+        return parsed.readsDiagnosticContext;
+    }
+
+    /**
+     * Check whether appenders must print the throwable themselves
+     * @return false if the pattern renders $throwable, true otherwise
      */
     @Override
     public boolean ignoresThrowable() {
-        return true;
+        return !parsed.rendersThrowable;
     }
 
     /**
@@ -111,4 +253,60 @@ public class VelocityLayout extends Layout {
     public void activateOptions() {
         // No special activation needed
     }
-}
\ No newline at end of file
+
+    /**
+     * A pattern with its compiled form and its lazily parsed Velocity template
+     * Replaced as a whole by setPattern, so concurrent format calls always see
+     * a matching pattern and template
+     */
+    private static final class ParsedPattern {
+
+        final String pattern;
+        final CompiledPattern compiled;
+        final boolean rendersThrowable;
+        final boolean readsDiagnosticContext;
+        private volatile Template template;
+        private volatile RuntimeException failure;
+
+        ParsedPattern(String pattern) {
+            this.pattern = pattern;
+            this.compiled = CompiledPattern.compile(pattern);
+            this.rendersThrowable = pattern != null && THROWABLE_REFERENCE.matcher(pattern).find();
+            this.readsDiagnosticContext = pattern != null && CONTEXT_REFERENCE.matcher(pattern).find();
+        }
+
+        /**
+         * Get the template parsed from the pattern, parsing it on first use
+         * Templates are immutable once initialized and safe to merge from many threads
+         */
+        Template template(RuntimeServices runtime) {
+            Template current = template;
+            if (current == null) {
+                if (failure != null) {
+                    throw failure; // don't re-parse a broken pattern for every event
+                }
+                try {
+                    current = parse(runtime, MDC_REFERENCE.matcher(pattern).replaceAll("\\$!{X.get(\"$1\")}"));
+                } catch (RuntimeException e) {
+                    failure = e;
+                    throw e;
+                } catch (Exception e) {
+                    failure = new IllegalStateException("Failed to parse pattern: " + pattern, e);
+                    throw failure;
+                }
+                template = current;
+            }
+            return current;
+        }
+
+        private static Template parse(RuntimeServices runtime, String pattern) throws Exception {
+            SimpleNode node = runtime.parse(new StringReader(pattern), "VelocityLayout");
+            Template template = new Template();
+            template.setName("VelocityLayout");
+            template.setRuntimeServices(runtime);
+            template.setData(node);
+            template.initDocument();
+            return template;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package assign251_2;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.openmbean.CompositeData;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for AdmissionControl and its use by MemAppender
+ */
+class AdmissionControlTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void testAdmitsEverythingByDefault() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(admission.admit(createEvent("a", Level.DEBUG, 0, "Message")));
+        }
+        assertEquals(0, admission.getSuppressedCount());
+        assertEquals(1.0, admission.getKeepRate());
+    }
+
+    @Test
+    void testLevelRateLimit() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        admission.setLevelRateLimit(Level.DEBUG, 10, 3); // one token every 100 ms
+
+        assertEquals(3, admitted(admission, createEvent("a", Level.DEBUG, 0, "Message"), 10), "Burst should pass at once");
+        assertTrue(admission.admit(createEvent("a", Level.ERROR, 0, "Message")), "Other levels are not limited");
+        now.addAndGet(250_000_000L);
+        assertEquals(2, admitted(admission, createEvent("a", Level.DEBUG, 0, "Message"), 10));
+        assertEquals(15, admission.getRateLimitedCount());
+        assertEquals(15, admission.getSuppressedCount(Level.DEBUG));
+        assertEquals(0, admission.getSuppressedCount(Level.ERROR));
+
+        admission.setLevelRateLimit(Level.DEBUG, 0, 0);
+        assertEquals(10, admitted(admission, createEvent("a", Level.DEBUG, 0, "Message"), 10));
+        assertThrows(IllegalArgumentException.class, () -> admission.setLevelRateLimit(Level.INFO, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> admission.setLevelRateLimit(Level.INFO, 5, 0));
+        assertThrows(IllegalArgumentException.class, () -> admission.setLevelRateLimit(null, 5, 1));
+    }
+
+    @Test
+    void testLoggerRateLimitIsPerLogger() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        admission.setLoggerRateLimit(1, 2);
+
+        assertEquals(2, admitted(admission, createEvent("com.x.hot", Level.ERROR, 0, "Message"), 100));
+        assertEquals(2, admitted(admission, createEvent("com.x.quiet", Level.ERROR, 0, "Message"), 1000),
+                "A hot logger should not use up the tokens of another logger");
+        now.addAndGet(1_000_000_000L);
+        assertEquals(1, admitted(admission, createEvent("com.x.hot", Level.ERROR, 0, "Message"), 100));
+        assertEquals(98 + 998 + 99, admission.getRateLimitedCount());
+    }
+
+    @Test
+    void testLoggerRefusalKeepsLevelToken() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        admission.setLevelRateLimit(Level.INFO, 1, 2);
+        admission.setLoggerRateLimit(1, 1);
+
+        assertTrue(admission.admit(createEvent("com.x.hot", Level.INFO, 0, "Message")));
+        assertFalse(admission.admit(createEvent("com.x.hot", Level.INFO, 0, "Message")), "The logger bucket is empty");
+        assertTrue(admission.admit(createEvent("com.x.quiet", Level.INFO, 0, "Message")),
+                "An event refused by its logger should not use up a level token");
+        assertFalse(admission.admit(createEvent("com.x.other", Level.INFO, 0, "Message")));
+    }
+
+    @Test
+    void testSlowRatesWithLargeBurstsDoNotOverflow() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        admission.setLevelRateLimit(Level.INFO, 1e-6, 1_000_000); // tolerance of 1e21 ns
+        assertEquals(1000, admitted(admission, createEvent("a", Level.INFO, 0, "Message"), 1000));
+
+        admission.setLevelRateLimit(Level.INFO, 1e-30, 2); // interval beyond the range of a long
+        assertEquals(2, admitted(admission, createEvent("a", Level.INFO, 0, "Message"), 10));
+        now.addAndGet(AdmissionControl.MAX_AHEAD_NANOS / 2);
+        assertEquals(0, admitted(admission, createEvent("a", Level.INFO, 0, "Message"), 10), "The next token is decades away");
+    }
+
+    @Test
+    void testSamplingFollowsInputRate() {
+        AdmissionControl admission = new AdmissionControl(now::get);
+        admission.setSampling(1000, Level.WARN);
+        LoggingEvent debug = createEvent("a", Level.DEBUG, 0, "Message");
+
+        // 100k events per second: 100 per millisecond for two windows
+        runAtRate(admission, debug, 100, 100);
+        runAtRate(admission, debug, 100, 100);
+        assertEquals(0.01, admission.getKeepRate(), 0.002);
+        int kept = runAtRate(admission, debug, 100, 100);
+        assertTrue(kept > 50 && kept < 160, "Expected about 100 kept events, got " + kept);
+        assertEquals(100, runAtRate(admission, createEvent("a", Level.ERROR, 0, "Message"), 1, 100),
+                "Events at the threshold are never sampled");
+
+        // the storm ends: 500 events per second is below the target
+        runAtRate(admission, debug, 1, 20);
+        runAtRate(admission, debug, 1, 200);
+        assertEquals(1.0, admission.getKeepRate());
+        assertEquals(admission.getSampledOutCount(), admission.getSuppressedCount(Level.DEBUG));
+        assertTrue(admission.getSampledOutCount() > 0);
+    }
+
+    @Test
+    void testAppenderCountsSuppressedEvents() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(100));
+        appender.getAdmissionControl().setLevelRateLimit(Level.INFO, 1, 5);
+        MemAppenderMonitor monitor = new MemAppenderMonitor(appender, "AdmissionMonitorTest");
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(createEvent("a", Level.INFO, 0, "Message"));
+        }
+        appender.doAppend(createEvent("a", Level.ERROR, 0, "Message"));
+
+        assertEquals(6, appender.getCurrentSize());
+        assertEquals(0, appender.getDiscardedLogCount(), "Suppressed events never reach the buffer");
+        assertEquals(15L, monitor.getAttribute("SuppressedCount"));
+        assertEquals(15L, monitor.getAttribute("RateLimitedCount"));
+        assertEquals(0L, monitor.getAttribute("SampledOutCount"));
+        assertEquals(1.0, monitor.getAttribute("SampleKeepRate"));
+        assertEquals(15L, ((CompositeData) monitor.getAttribute("LevelSuppressedCounts")).get("INFO"));
+
+        appender.clear();
+        assertEquals(0L, monitor.getAttribute("SuppressedCount"));
+    }
+
+    @Test
+    void testAdmitIsGarbageFree() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters not available");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled(),
+                "Allocation counters not enabled");
+
+        AdmissionControl admission = new AdmissionControl();
+        admission.setLevelRateLimit(Level.DEBUG, 100000, 1000);
+        admission.setLoggerRateLimit(50000, 1000);
+        admission.setSampling(10000, Level.INFO);
+        LoggingEvent[] events = {createEvent("a", Level.DEBUG, 0, "Message"), createEvent("b", Level.INFO, 0, "Message"), createEvent("c", Level.TRACE, 0, "Message")};
+        for (int i = 0; i < 20000; i++) { // let the JIT settle and create the logger buckets
+            admission.admit(events[i % events.length]);
+        }
+
+        int count = 100000;
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            admission.admit(events[i % events.length]);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(allocated / (double) count < 1.0,
+                "Admission should not allocate per event, got " + allocated + " bytes for " + count + " events");
+    }
+
+    /**
+     * Offer events evenly spread over a number of milliseconds
+     * @return number of admitted events
+     */
+    private int runAtRate(AdmissionControl admission, LoggingEvent event, int perMilli, int millis) {
+        int kept = 0;
+        for (int ms = 0; ms < millis; ms++) {
+            now.addAndGet(1_000_000L);
+            kept += admitted(admission, event, perMilli);
+        }
+        return kept;
+    }
+
+    private int admitted(AdmissionControl admission, LoggingEvent event, int attempts) {
+        int kept = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (admission.admit(event)) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,145 @@
+package assign251_2;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AsyncEventStore and the async mode of MemAppender
+ */
+class AsyncEventStoreTest {
+
+    @Test
+    void testFlushMakesEventsVisible() {
+        MemAppender appender = new MemAppender(new AsyncEventStore(new RingBufferEventStore(100)));
+        Logger logger = Logger.getLogger("TestAsyncFlush");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        for (int i = 0; i < 150; i++) {
+            logger.info("Message " + i);
+        }
+        appender.flush();
+
+        List<LoggingEvent> logs = appender.getCurrentLogs();
+        assertEquals(100, logs.size());
+        assertEquals("Message 50", logs.get(0).getRenderedMessage());
+        assertEquals("Message 149", logs.get(99).getRenderedMessage());
+        assertEquals(50, appender.getDiscardedLogCount());
+
+        appender.close();
+        logger.removeAllAppenders(); // Clean up
+    }
+
+    @Test
+    void testDropNewestWhenQueueIsFull() throws InterruptedException {
+        BlockingStore blocked = new BlockingStore();
+        AsyncEventStore store = new AsyncEventStore(blocked, 4, AsyncEventStore.OverflowPolicy.DROP_NEWEST);
+        MemAppender appender = new MemAppender(store);
+
+        appender.doAppend(createEvent("Message 0"));
+        assertTrue(blocked.entered.await(5, TimeUnit.SECONDS), "Drain thread should pick up the first event");
+        for (int i = 1; i <= 10; i++) {
+            appender.doAppend(createEvent("Message " + i)); // fills the queue while the drain thread is stuck
+        }
+        assertEquals(6, appender.getDiscardedLogCount(), "Events beyond the queue capacity should be dropped");
+
+        blocked.release.countDown();
+        appender.flush();
+        List<LoggingEvent> logs = appender.getCurrentLogs();
+        assertEquals(5, logs.size());
+        assertEquals("Message 4", logs.get(4).getRenderedMessage());
+        appender.close();
+    }
+
+    @Test
+    void testDropOldestWhenQueueIsFull() throws InterruptedException {
+        BlockingStore blocked = new BlockingStore();
+        AsyncEventStore store = new AsyncEventStore(blocked, 4, AsyncEventStore.OverflowPolicy.DROP_OLDEST);
+        MemAppender appender = new MemAppender(store);
+
+        appender.doAppend(createEvent("Message 0"));
+        assertTrue(blocked.entered.await(5, TimeUnit.SECONDS), "Drain thread should pick up the first event");
+        for (int i = 1; i <= 10; i++) {
+            appender.doAppend(createEvent("Message " + i));
+        }
+        assertEquals(6, appender.getDiscardedLogCount());
+
+        blocked.release.countDown();
+        appender.flush();
+        List<LoggingEvent> logs = appender.getCurrentLogs();
+        assertEquals(5, logs.size());
+        assertEquals("Message 7", logs.get(1).getRenderedMessage(), "Newest queued events should survive");
+        appender.close();
+    }
+
+    @Test
+    void testBlockWaitsForRoom() throws InterruptedException {
+        BlockingStore blocked = new BlockingStore();
+        AsyncEventStore store = new AsyncEventStore(blocked, 2, AsyncEventStore.OverflowPolicy.BLOCK);
+
+        store.add(createEvent("Message 0"));
+        assertTrue(blocked.entered.await(5, TimeUnit.SECONDS));
+        store.add(createEvent("Message 1"));
+        store.add(createEvent("Message 2"));
+
+        Thread producer = new Thread(() -> store.add(createEvent("Message 3")));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "Producer should block while the queue is full");
+
+        blocked.release.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        store.close();
+        assertEquals(4, store.size(), "Close should drain every queued event");
+    }
+
+    @Test
+    void testAddRacingWithCloseLosesNothing() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            AsyncEventStore store = new AsyncEventStore(new RingBufferEventStore(1000));
+            CountDownLatch started = new CountDownLatch(1);
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 200; i++) {
+                    store.add(createEvent("Message " + i));
+                }
+            });
+            producer.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            store.close(); // while the producer is still adding
+            producer.join(5000);
+
+            assertEquals(200, store.size(), "Events offered after the final drain must still be stored");
+            assertEquals(0, store.getQueuedCount());
+        }
+    }
+
+    /**
+     * Ring buffer whose first batch blocks until released
+     */
+    private static class BlockingStore extends RingBufferEventStore {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void addAll(List<LoggingEvent> batch) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.addAll(batch);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package assign251_2;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CapturedEvent and MemAppender compact capture
+ */
+class CapturedEventTest {
+
+    @Test
+    void testCaptureKeepsRenderedFields() {
+        Logger logger = Logger.getLogger("CapturedLogger");
+        LoggingEvent source = new LoggingEvent(Logger.class.getName(), logger, 42L, Level.ERROR, new Payload(7),
+                "worker-1", new ThrowableInformation(new IllegalStateException("boom")), "ndc-1", null,
+                Map.of("user", "alice"));
+
+        LoggingEvent captured = CapturedEvent.capture(source, false);
+        assertEquals(42L, captured.timeStamp);
+        assertEquals(Level.ERROR, captured.getLevel());
+        assertEquals("CapturedLogger", captured.getLoggerName());
+        assertSame(logger, captured.getLogger());
+        assertEquals("worker-1", captured.getThreadName());
+        assertEquals("Payload 7", captured.getRenderedMessage());
+        assertEquals("Payload 7", captured.getMessage(), "The message object is replaced by its rendering");
+        assertArrayEquals(source.getThrowableStrRep(), captured.getThrowableStrRep());
+        assertNull(captured.getThrowableInformation().getThrowable(), "Only the stack trace strings are kept");
+        assertNull(captured.getNDC());
+        assertNull(captured.getMDC("user"));
+        assertTrue(captured.getProperties().isEmpty());
+        assertSame(captured, CapturedEvent.capture(captured, false));
+
+        LoggingEvent withContext = CapturedEvent.capture(source, true);
+        assertEquals("ndc-1", withContext.getNDC());
+        assertEquals("alice", withContext.getMDC("user"));
+        MDC.put("user", "formatting-thread");
+        try {
+            withContext.getMDCCopy();
+            assertEquals("alice", withContext.getMDC("user"), "The formatting thread's MDC must not leak in");
+            assertNull(captured.getMDC("user"));
+        } finally {
+            MDC.remove("user");
+        }
+    }
+
+    @Test
+    void testCompactCaptureReleasesMessageObjects() throws InterruptedException {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.setLayout(new VelocityLayout("$m"));
+        Logger logger = Logger.getLogger("CompactCaptureTest");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        Payload kept = new Payload(1);
+        WeakReference<Payload> keptRef = new WeakReference<>(kept);
+        logger.debug(kept);
+        kept = null;
+
+        appender.setCompactCapture(true);
+        assertTrue(appender.isCompactCapture());
+        Payload released = new Payload(2);
+        WeakReference<Payload> releasedRef = new WeakReference<>(released);
+        logger.debug(released);
+        released = null;
+
+        for (int i = 0; i < 10 && releasedRef.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(releasedRef.get(), "A captured event should not keep the message object alive");
+        assertNotNull(keptRef.get(), "Events appended before compact capture keep their message");
+        assertEquals(List.of("Payload 1", "Payload 2"), appender.getEventStrings());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+
+    @Test
+    void testCompactCaptureKeepsContextForLayoutsThatPrintIt() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.setCompactCapture(true);
+        appender.setLayout(new VelocityLayout("$X{user}: $m"));
+        Logger logger = Logger.getLogger("CompactContextTest");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+
+        MDC.put("user", "bob");
+        try {
+            logger.info("Context kept");
+        } finally {
+            MDC.remove("user");
+        }
+        assertEquals(List.of("bob: Context kept"), appender.getEventStrings());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+
+    /**
+     * A message object standing in for a large DTO
+     */
+    private static final class Payload {
+        private final int id;
+        private final byte[] body = new byte[64 * 1024];
+
+        Payload(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return "Payload " + id;
+        }
+    }
+}
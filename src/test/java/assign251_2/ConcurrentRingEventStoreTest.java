@@ -0,0 +1,187 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConcurrentRingEventStore
+ */
+class ConcurrentRingEventStoreTest {
+
+    @Test
+    void testEvictsOldestWhenFull() {
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(3);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(2, evicted.size(), "Should have evicted 2 events");
+        assertMessages(store.snapshot(), "Message 2", "Message 3", "Message 4");
+    }
+
+    @Test
+    void testResizeClearAndDrain() {
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(4);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 4; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        store.setCapacity(2);
+        assertEquals(2, evicted.size(), "Shrinking should evict the oldest events");
+        assertMessages(store.snapshot(), "Message 2", "Message 3");
+
+        store.clear();
+        assertEquals(0, store.size());
+        store.add(createEvent("Message 4"));
+        assertEquals(2, evicted.size(), "Cleared events should not be reported as evicted");
+        assertMessages(store.drain(), "Message 4");
+        assertTrue(store.snapshot().isEmpty());
+    }
+
+    @Test
+    void testEvictOldest() {
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(3);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 4; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        assertTrue(store.evictOldest());
+        assertEquals(2, store.size());
+        assertEquals("Message 1", evicted.get(1).getRenderedMessage());
+        assertMessages(store.snapshot(), "Message 2", "Message 3");
+
+        store.add(createEvent("Message 4"));
+        assertMessages(store.snapshot(), "Message 2", "Message 3", "Message 4");
+        assertEquals(2, evicted.size(), "Reusing a removed slot should not report another eviction");
+    }
+
+    @Test
+    void testSequencesSurviveResizeAndDrain() {
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(4);
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i)); // sequences 0-5, 2-5 stored
+        }
+        store.setCapacity(3);
+        EventSnapshot snapshot = store.snapshotFrom(0);
+        assertEquals(3, snapshot.size());
+        assertEquals(3, snapshot.getSequence(0), "Resizing should keep sequence numbers");
+
+        store.add(createEvent("Message 6"));
+        EventSnapshot delta = store.snapshotFrom(6);
+        assertEquals(1, delta.size());
+        assertEquals(6, delta.getSequence(0));
+
+        store.drain();
+        store.add(createEvent("Message 7"));
+        assertEquals(7, store.snapshotFrom(0).getSequence(0), "Sequences are never reused");
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothing() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5000;
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(1000);
+        AtomicLong evicted = new AtomicLong();
+        store.setEvictionListener(event -> evicted.incrementAndGet());
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.add(createEvent(id + ":" + i));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        List<LoggingEvent> midway = store.snapshot(); // readers run alongside producers
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(midway.size() <= 1000);
+        List<LoggingEvent> events = store.snapshot();
+        assertEquals(1000, events.size());
+        assertEquals(threads * perThread, events.size() + evicted.get(),
+                "Every event should be either stored or counted as evicted");
+
+        Set<String> unique = new HashSet<>();
+        for (LoggingEvent event : events) {
+            assertTrue(unique.add(event.getRenderedMessage()), "Snapshot should not repeat events");
+        }
+    }
+
+    @Test
+    void testResizingUnderLoadReportsEveryDroppedEvent() throws InterruptedException {
+        int threads = 4;
+        int perThread = 20000;
+        ConcurrentRingEventStore store = new ConcurrentRingEventStore(64);
+        AtomicLong evicted = new AtomicLong();
+        store.setEvictionListener(event -> evicted.incrementAndGet());
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.add(createEvent("Message " + i));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (int i = 0; producers.stream().anyMatch(Thread::isAlive); i++) {
+            store.setCapacity(i % 2 == 0 ? 16 : 64); // resize while producers are mid-publish
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(store.size() <= store.getCapacity());
+        assertEquals(threads * perThread, store.size() + evicted.get(),
+                "Every event should be either stored or counted as evicted");
+    }
+
+    @Test
+    void testMemAppenderWithConcurrentStore() throws InterruptedException {
+        MemAppender appender = MemAppender.createNewInstance(new ConcurrentRingEventStore(100));
+        Logger logger = Logger.getLogger("TestConcurrentRing");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    logger.info("Message " + i);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(100, appender.getCurrentSize());
+        assertEquals(3900, appender.getDiscardedLogCount());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+}
@@ -0,0 +1,97 @@
+package assign251_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DateRenderer
+ */
+class DateRendererTest {
+
+    private static final long[] TIMESTAMPS = {
+        0L, 999L, 1000L, 1700000000123L, 1700000000999L, 1700000001000L, 1700000000007L, -1L, -1001L
+    };
+
+    @Test
+    void testDefaultMatchesDateToString() {
+        DateRenderer renderer = new DateRenderer(null);
+        assertTrue(renderer.isDefault());
+        assertEquals(DateRenderer.DEFAULT, renderer.getFormat());
+        for (long timeStamp : TIMESTAMPS) {
+            assertEquals(new Date(timeStamp).toString(), renderer.format(timeStamp));
+        }
+    }
+
+    @Test
+    void testEpochMillis() {
+        DateRenderer renderer = new DateRenderer("epoch");
+        for (long timeStamp : new long[] {0L, 7L, 1700000000123L, -42L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(Long.toString(timeStamp), renderer.format(timeStamp));
+            assertEquals(Long.toString(timeStamp), encode(renderer, timeStamp));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"yyyy-MM-dd'T'HH:mm:ss.SSSXXX", "HH:mm:ss,SSS", "SSS 'ms' yyyy", "dd MMM yyyy HH:mm:ss",
+        "HH:mm:ss.S", "A", "EEEE 'día' HH:mm:ss.SSS"})
+    void testPatternsMatchDateTimeFormatter(String pattern) {
+        DateRenderer renderer = new DateRenderer(pattern);
+        DateTimeFormatter expected = DateTimeFormatter.ofPattern(pattern, Locale.US).withZone(ZoneId.systemDefault());
+        for (long timeStamp : TIMESTAMPS) {
+            String text = expected.format(Instant.ofEpochMilli(timeStamp));
+            assertEquals(text, renderer.format(timeStamp), pattern + " at " + timeStamp);
+            assertEquals(text, encode(renderer, timeStamp), pattern + " at " + timeStamp);
+        }
+    }
+
+    @Test
+    void testIso8601() {
+        DateRenderer renderer = new DateRenderer("ISO8601");
+        String text = renderer.format(1700000000123L);
+        assertTrue(text.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.123([+-]\\d{2}:\\d{2}|Z)"), text);
+    }
+
+    @Test
+    void testInvalidPattern() {
+        assertThrows(IllegalArgumentException.class, () -> new DateRenderer("yyyy-MM-dd {"));
+    }
+
+    @Test
+    void testConcurrentRenderingAcrossSeconds() throws InterruptedException {
+        DateRenderer renderer = new DateRenderer("HH:mm:ss.SSS");
+        DateTimeFormatter expected = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+        boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long offset = t * 1000L; // each thread in its own second, so the cache keeps changing
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    long timeStamp = 1700000000000L + offset + i % 1000;
+                    if (!expected.format(Instant.ofEpochMilli(timeStamp)).equals(renderer.format(timeStamp))) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0], "Every thread should see the text of its own second");
+    }
+
+    private String encode(DateRenderer renderer, long timeStamp) {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        renderer.encodeTo(buffer, timeStamp);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package assign251_2;
+
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Event factories and assertions shared by the store and index tests
+ */
+final class EventFixtures {
+
+    private EventFixtures() {
+    }
+
+    /**
+     * Create an INFO event from TestLogger stamped now
+     */
+    static LoggingEvent createEvent(String message) {
+        return createEvent("TestLogger", Level.INFO, System.currentTimeMillis(), message);
+    }
+
+    /**
+     * Create an INFO event from TestLogger
+     */
+    static LoggingEvent createEvent(String message, long timeStamp) {
+        return createEvent("TestLogger", Level.INFO, timeStamp, message);
+    }
+
+    /**
+     * Create an event from TestLogger stamped now
+     */
+    static LoggingEvent createEvent(Level level, String message) {
+        return createEvent("TestLogger", level, System.currentTimeMillis(), message);
+    }
+
+    static LoggingEvent createEvent(String loggerName, Level level, long timeStamp, String message) {
+        Logger logger = Logger.getLogger(loggerName);
+        return new LoggingEvent(loggerName, logger, timeStamp, level, message, null);
+    }
+
+    /**
+     * Check the rendered messages of events, in order
+     */
+    static void assertMessages(List<LoggingEvent> events, String... expected) {
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], events.get(i).getRenderedMessage());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package assign251_2;
+
+import java.util.List;
+import javax.management.openmbean.CompositeData;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventIndex and MemAppender.query
+ */
+class EventIndexTest {
+
+    @Test
+    void testQueryByLevelLoggerAndTime() {
+        EventIndex index = new EventIndex();
+        index.add(createEvent("com.x.payment", Level.ERROR, 1000, "Payment failed"), 0);
+        index.add(createEvent("com.x.payment.Card", Level.WARN, 2000, "Card slow"), 1);
+        index.add(createEvent("com.xyz", Level.ERROR, 3000, "Other failure"), 2);
+        index.add(createEvent("com.x.payment.Card", Level.FATAL, 4500, "Card down"), 3);
+
+        assertMessages(index.query(Level.ERROR, "com.x.payment", Long.MIN_VALUE, Long.MAX_VALUE, 0),
+                "Payment failed", "Card down");
+        assertMessages(index.query(null, "com.x", Long.MIN_VALUE, Long.MAX_VALUE, 0),
+                "Payment failed", "Card slow", "Card down");
+        assertMessages(index.query(null, null, 2000, 4000, 0), "Card slow", "Other failure");
+        assertMessages(index.query(Level.ERROR, null, Long.MIN_VALUE, Long.MAX_VALUE, 2),
+                "Other failure", "Card down");
+        assertTrue(index.query(Level.DEBUG, "org", Long.MIN_VALUE, Long.MAX_VALUE, 0).isEmpty());
+        assertMessages(index.query(null, "com.x.payment.", Long.MIN_VALUE, Long.MAX_VALUE, 0),
+                "Card slow", "Card down");
+        List<LoggingEvent> all = index.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+        assertMessages(EventIndex.scan(all, null, "com.x.", Long.MIN_VALUE, Long.MAX_VALUE, 0),
+                "Payment failed", "Card slow", "Card down");
+    }
+
+    @Test
+    void testRemoveKeepsIndexesInStep() {
+        EventIndex index = new EventIndex();
+        LoggingEvent first = createEvent("a", Level.ERROR, 1000, "First");
+        LoggingEvent second = createEvent("a", Level.ERROR, 1000, "Second");
+        LoggingEvent third = createEvent("b", Level.INFO, 2000, "Third");
+        index.add(first, 0);
+        index.add(second, 1);
+        index.add(third, 2);
+
+        index.remove(1); // out of order
+        assertMessages(index.query(Level.ERROR, "a", 0, 5000, 0), "First");
+        index.remove(1); // already removed
+        index.remove(0);
+        assertEquals(1, index.size());
+        assertMessages(index.query(null, null, 0, 5000, 0), "Third");
+
+        index.clear();
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRemoveBySequenceWithIdenticalEvents() {
+        EventIndex index = new EventIndex();
+        LoggingEvent older = createEvent("a", Level.ERROR, 1000, "Same");
+        LoggingEvent newer = createEvent("a", Level.ERROR, 1000, "Same");
+        index.add(older, 0);
+        index.add(newer, 1);
+
+        index.remove(1); // a decoded copy would match both entries by content
+        List<LoggingEvent> left = index.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+        assertEquals(1, left.size());
+        assertSame(older, left.get(0));
+    }
+
+    @Test
+    void testAppenderQueryWithAndWithoutIndex() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(3));
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(createEvent("com.x.payment", i % 2 == 0 ? Level.ERROR : Level.INFO, i, "Message " + i));
+        }
+        List<LoggingEvent> scanned = appender.query(Level.ERROR, "com.x", 0, Long.MAX_VALUE, 0);
+        assertMessages(scanned, "Message 2", "Message 4");
+
+        appender.setIndexed(true);
+        assertTrue(appender.isIndexed());
+        assertMessages(appender.query(Level.ERROR, "com.x", 0, Long.MAX_VALUE, 0), "Message 2", "Message 4");
+
+        appender.doAppend(createEvent("com.x.payment", Level.ERROR, 5, "Message 5")); // evicts Message 2
+        assertMessages(appender.query(Level.ERROR, "com.x", 0, Long.MAX_VALUE, 0), "Message 4", "Message 5");
+
+        appender.clear();
+        assertTrue(appender.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> appender.query(null, null, 0, 0, -1));
+    }
+
+    @Test
+    void testEnablingIndexesWhileEventsArrive() {
+        RingBufferEventStore store = new RingBufferEventStore(3) {
+            private boolean raced;
+
+            @Override
+            public EventSnapshot snapshotFrom(long fromSequence) {
+                EventSnapshot snapshot = super.snapshotFrom(fromSequence);
+                if (!raced) {
+                    raced = true; // an append between the snapshot and the fill
+                    add(createEvent("com.x", Level.ERROR, 9, "Racing"));
+                }
+                return snapshot;
+            }
+        };
+        MemAppender appender = new MemAppender(store);
+        for (int i = 0; i < 3; i++) {
+            appender.doAppend(createEvent("com.x", Level.ERROR, i, "Message " + i));
+        }
+
+        appender.setIndexed(true); // the racing append evicts Message 0 from the snapshot being filled
+        assertMessages(appender.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0),
+                "Message 1", "Message 2", "Racing");
+
+        appender.setTextIndexed(true);
+        assertMessages(appender.search("message", 0), "Message 1", "Message 2");
+    }
+
+    @Test
+    void testClearKeepsEventsAppendedDuringDrain() {
+        RingBufferEventStore store = new RingBufferEventStore(3) {
+            @Override
+            public EventSnapshot drainSnapshot() {
+                EventSnapshot drained = super.drainSnapshot();
+                add(createEvent("com.x", Level.ERROR, 9, "Late")); // lands in the emptied store
+                return drained;
+            }
+        };
+        MemAppender appender = new MemAppender(store);
+        appender.setIndexed(true);
+        appender.setTextIndexed(true);
+        appender.doAppend(createEvent("com.x", Level.ERROR, 1, "Early"));
+
+        appender.clear();
+        assertMessages(appender.getCurrentLogs(), "Late");
+        assertMessages(appender.query(null, null, Long.MIN_VALUE, Long.MAX_VALUE, 0), "Late");
+        assertMessages(appender.search("late", 0), "Late");
+        assertTrue(appender.search("early", 0).isEmpty());
+    }
+
+    @Test
+    void testIndexWithDecodingStore() {
+        MemAppender appender = new MemAppender(new OffHeapEventStore(2, 4096));
+        appender.setIndexed(true);
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(createEvent("com.x", Level.WARN, i, "Message " + i));
+        }
+        assertMessages(appender.query(Level.WARN, null, Long.MIN_VALUE, Long.MAX_VALUE, 0), "Message 2", "Message 3");
+    }
+
+    @Test
+    void testMonitorQueryOperation() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.setIndexed(true);
+        MemAppenderMonitor monitor = new MemAppenderMonitor(appender, "QueryMonitorTest");
+        long now = System.currentTimeMillis();
+        appender.doAppend(createEvent("com.x.payment", Level.ERROR, now - 60000, "Old failure"));
+        appender.doAppend(createEvent("com.x.payment", Level.ERROR, now, "Recent failure"));
+        appender.doAppend(createEvent("com.x.payment", Level.INFO, now, "Recent info"));
+
+        CompositeData[] results = (CompositeData[]) monitor.invoke("queryLogs",
+                new Object[] {"ERROR", "com.x.payment", -30000L, 0L, 0}, null);
+        assertEquals(1, results.length);
+        assertEquals("Recent failure", results[0].get("message"));
+        assertEquals(-1L, results[0].get("sequence"));
+
+        assertEquals(3, ((CompositeData[]) monitor.invoke("queryLogs",
+                new Object[] {"", "", 0L, 0L, 0}, null)).length);
+        assertThrows(IllegalArgumentException.class, () -> monitor.invoke("queryLogs",
+                new Object[] {"LOUD", "", 0L, 0L, 0}, null));
+    }
+}
@@ -0,0 +1,111 @@
+package assign251_2;
+
+import java.util.List;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FormatCache
+ */
+class FormatCacheTest {
+
+    @Test
+    void testLookupUpdateAndRemove() {
+        FormatCache cache = new FormatCache(false);
+        VelocityLayout layout = new VelocityLayout("$m");
+        List<LoggingEvent> events = List.of(createEvent("First"), createEvent("Second"));
+
+        String[] texts = new String[2];
+        assertEquals(0, cache.lookup(layout, events, texts));
+        assertArrayEquals(new String[2], texts);
+
+        long added = cache.update(layout, layout.getVersion(), events, new String[] {"First", "Second"});
+        assertEquals(2 * FormatCache.ENTRY_OVERHEAD + EventSizeEstimator.estimate("First")
+                + EventSizeEstimator.estimate("Second"), added);
+        assertEquals(added, cache.getEstimatedBytes());
+
+        cache.lookup(layout, events, texts);
+        assertArrayEquals(new String[] {"First", "Second"}, texts);
+
+        assertEquals(-(FormatCache.ENTRY_OVERHEAD + EventSizeEstimator.estimate("First")), cache.remove(events.get(0)));
+        assertEquals(0, cache.remove(events.get(0)), "Removing twice frees nothing");
+        assertEquals(1, cache.size());
+        assertEquals(-cache.getEstimatedBytes(), cache.clear());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLayoutChangesEmptyTheCache() {
+        FormatCache cache = new FormatCache(true);
+        VelocityLayout layout = new VelocityLayout("$m");
+        LoggingEvent event = createEvent("Message");
+        long added = cache.put(layout, layout.getVersion(), event, "Message");
+        assertTrue(added > 0);
+        assertEquals(0, cache.put(layout, layout.getVersion(), event, "Message"), "An event is cached once");
+
+        layout.setPattern("$p $m");
+        String[] texts = new String[1];
+        assertEquals(-added, cache.lookup(layout, List.of(event), texts));
+        assertNull(texts[0], "Strings of the old pattern must not be reused");
+
+        long cached = cache.put(layout, layout.getVersion(), event, "INFO Message");
+        layout.setDateFormat("EPOCH");
+        assertEquals(-cached, cache.lookup(layout, List.of(event), texts), "A new date format invalidates the cache");
+        assertEquals(0, cache.getEstimatedBytes());
+
+        cache.put(layout, layout.getVersion(), event, "INFO Message");
+        cache.lookup(new VelocityLayout("$p $m"), List.of(event), texts);
+        assertNull(texts[0], "Another layout instance has its own strings");
+    }
+
+    @Test
+    void testStringsFormattedDuringALayoutChangeAreNotCached() {
+        FormatCache cache = new FormatCache(false);
+        VelocityLayout layout = new VelocityLayout("$m");
+        LoggingEvent event = createEvent("Message");
+        long version = layout.getVersion();
+        String text = layout.format(event);
+        layout.setPattern("$p $m"); // changed while the string was being formatted
+
+        assertEquals(0, cache.put(layout, version, event, text));
+        assertEquals(0, cache.update(layout, version, List.of(event), new String[] {text}));
+        assertEquals(0, cache.size(), "A string of the old pattern must not be cached under the new version");
+
+        cache.put(layout, layout.getVersion(), event, layout.format(event));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testEventsEvictedWhileFormattingAreNotCached() {
+        FormatCache cache = new FormatCache(false);
+        VelocityLayout layout = new VelocityLayout("$m");
+        LoggingEvent gone = createEvent("Gone");
+        LoggingEvent kept = createEvent("Kept");
+
+        cache.beginFormat();
+        cache.beginFormat(); // two readers format at once
+        assertEquals(0, cache.remove(gone), "Evicted before either snapshot was cached");
+        cache.update(layout, layout.getVersion(), List.of(gone, kept), new String[] {"Gone", "Kept"});
+        cache.update(layout, layout.getVersion(), List.of(gone), new String[] {"Gone"});
+        assertEquals(1, cache.size());
+        assertEquals(FormatCache.ENTRY_OVERHEAD + EventSizeEstimator.estimate("Kept"), cache.getEstimatedBytes());
+
+        cache.update(layout, layout.getVersion(), List.of(gone), new String[] {"Gone"});
+        assertEquals(2, cache.size(), "Evictions are forgotten once no snapshot is being formatted");
+    }
+
+    @Test
+    void testClosedCacheStoresNothing() {
+        FormatCache cache = new FormatCache(false);
+        VelocityLayout layout = new VelocityLayout("$m");
+        cache.put(layout, layout.getVersion(), createEvent("Cached"), "Cached");
+
+        assertEquals(-cache.getEstimatedBytes(), cache.close());
+        assertEquals(0, cache.put(layout, layout.getVersion(), createEvent("Late"), "Late"));
+        cache.beginFormat();
+        assertEquals(0, cache.update(layout, layout.getVersion(), List.of(createEvent("Late")), new String[] {"Late"}));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,180 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LevelPartitionedEventStore
+ */
+class LevelPartitionedEventStoreTest {
+
+    @Test
+    void testBurstOfLowLevelsKeepsErrors() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(4);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        store.add(createEvent(Level.ERROR, "Failure"));
+        store.add(createEvent(Level.WARN, "Warning"));
+        for (int i = 0; i < 10; i++) {
+            store.add(createEvent(Level.DEBUG, "Debug " + i));
+        }
+        store.add(createEvent(Level.INFO, "Info")); // evicts the oldest remaining debug event
+
+        assertMessages(store.snapshot(), "Failure", "Warning", "Debug 9", "Info");
+        assertEquals(9, evicted.size());
+        for (LoggingEvent event : evicted) {
+            assertEquals(Level.DEBUG, event.getLevel());
+        }
+    }
+
+    @Test
+    void testLessSevereEventIsDiscardedWhenFull() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(2);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+        store.add(createEvent(Level.ERROR, "Error 1"));
+        store.add(createEvent(Level.ERROR, "Error 2"));
+
+        store.add(createEvent(Level.INFO, "Info"));
+        assertMessages(evicted, "Info");
+        store.add(createEvent(Level.FATAL, "Fatal")); // the oldest error gives way
+        assertMessages(store.snapshot(), "Error 2", "Fatal");
+        assertMessages(evicted, "Info", "Error 1");
+    }
+
+    @Test
+    void testLevelCapacity() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(10);
+        store.setLevelCapacity(Level.INFO, 2);
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent(Level.INFO, "Info " + i));
+            store.add(createEvent(Level.ERROR, "Error " + i));
+        }
+        assertEquals(2, store.getLevelSize(Level.INFO));
+        assertEquals(5, store.getLevelSize(Level.ERROR));
+        assertMessages(store.snapshot(), "Error 0", "Error 1", "Error 2", "Info 3", "Error 3", "Info 4", "Error 4");
+
+        store.setLevelCapacity(Level.ERROR, 1);
+        assertMessages(store.snapshot(), "Info 3", "Info 4", "Error 4");
+        assertEquals(1, store.getLevelCapacity(Level.ERROR));
+        assertEquals(0, store.getLevelCapacity(Level.WARN));
+        assertThrows(IllegalArgumentException.class, () -> store.setLevelCapacity(Level.WARN, -1));
+        assertThrows(IllegalArgumentException.class, () -> store.setLevelCapacity(null, 1));
+    }
+
+    @Test
+    void testReadsKeepGlobalOrder() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(100);
+        Level[] levels = {Level.INFO, Level.ERROR, Level.DEBUG, Level.WARN, Level.FATAL, Level.TRACE};
+        for (int i = 0; i < 60; i++) {
+            store.add(createEvent(levels[i % levels.length], "Message " + i));
+        }
+
+        EventSnapshot snapshot = store.snapshotFrom(50);
+        assertEquals(10, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(50 + i, snapshot.getSequence(i));
+            assertEquals("Message " + (50 + i), snapshot.getEvents().get(i).getRenderedMessage());
+        }
+        List<LoggingEvent> drained = store.drain();
+        assertEquals(60, drained.size());
+        assertEquals("Message 0", drained.get(0).getRenderedMessage());
+        assertEquals(0, store.size());
+        store.add(createEvent(Level.INFO, "After drain"));
+        assertEquals(60, store.snapshotFrom(0).getSequence(0), "Sequence numbers are not reused");
+    }
+
+    @Test
+    void testShrinkAndEvictOldestPreferLowLevels() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(5);
+        store.add(createEvent(Level.WARN, "Warning"));
+        store.add(createEvent(Level.ERROR, "Failure"));
+        store.add(createEvent(Level.INFO, "Info 1"));
+        store.add(createEvent(Level.INFO, "Info 2"));
+
+        assertTrue(store.evictOldest());
+        assertMessages(store.snapshot(), "Warning", "Failure", "Info 2");
+        store.setCapacity(1);
+        assertMessages(store.snapshot(), "Failure");
+        assertThrows(IllegalArgumentException.class, () -> store.setCapacity(0));
+    }
+
+    @Test
+    void testCustomLevelsShareStandardLevel() {
+        Level notice = new Level(Level.WARN_INT + 1000, "NOTICE", 4) { };
+        assertEquals(LevelPartitionedEventStore.slotOf(Level.WARN), LevelPartitionedEventStore.slotOf(notice));
+        assertEquals(0, LevelPartitionedEventStore.slotOf(Level.ALL));
+        assertEquals(LevelPartitionedEventStore.LEVELS.length - 1, LevelPartitionedEventStore.slotOf(Level.OFF));
+    }
+
+    @Test
+    void testAppenderCountsPerLevel() {
+        MemAppender appender = new MemAppender(new LevelPartitionedEventStore(3));
+        appender.doAppend(createEvent(Level.ERROR, "Failure"));
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(createEvent(Level.DEBUG, "Debug " + i));
+        }
+
+        assertEquals(1, appender.getCurrentSize(Level.ERROR));
+        assertEquals(2, appender.getCurrentSize(Level.DEBUG));
+        assertEquals(2, appender.getDiscardedLogCount(Level.DEBUG));
+        assertEquals(0, appender.getDiscardedLogCount(Level.ERROR));
+        assertEquals(2, appender.getDiscardedLogCount());
+
+        appender.clear();
+        assertEquals(0, appender.getCurrentSize(Level.DEBUG));
+        assertEquals(0, appender.getDiscardedLogCount(Level.DEBUG));
+        assertThrows(IllegalArgumentException.class, () -> appender.getDiscardedLogCount(null));
+    }
+
+    @Test
+    void testIndexesStayBoundedUnderDebugFlood() {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(1000);
+        EventIndex index = new EventIndex();
+        TextIndex textIndex = new TextIndex();
+        store.setEvictionListener(new EventStore.EvictionListener() {
+            @Override
+            public void onEvict(LoggingEvent event) {
+            }
+
+            @Override
+            public void onEvict(LoggingEvent event, long sequence) {
+                index.remove(sequence);
+                textIndex.remove(sequence);
+            }
+
+            @Override
+            public void onStore(LoggingEvent event, long sequence) {
+                index.add(event, sequence);
+                textIndex.add(event, sequence);
+            }
+        });
+
+        for (int i = 0; i < 500; i++) {
+            store.add(createEvent(Level.ERROR, "Failure " + i));
+        }
+        for (int i = 0; i < 500; i++) {
+            store.add(createEvent(Level.DEBUG, "Debug " + i));
+        }
+        long fullBytes = textIndex.getEstimatedBytes();
+        for (int i = 500; i < 50000; i++) {
+            store.add(createEvent(Level.DEBUG, "Debug " + i)); // evicts behind the older errors
+        }
+
+        assertEquals(1000, index.size());
+        assertEquals(1000, textIndex.size());
+        assertTrue(index.getEntryCount() <= 2 * 1000 + EventIndex.COMPACT_SLACK + 1,
+                "Removed entries should be swept, held " + index.getEntryCount());
+        assertTrue(textIndex.getEstimatedBytes() < 3 * fullBytes,
+                "Text index should not grow with evictions, " + textIndex.getEstimatedBytes() + " bytes");
+        assertEquals(500, index.query(Level.ERROR, null, Long.MIN_VALUE, Long.MAX_VALUE, 0).size());
+        assertMessages(textIndex.search("debug", 2), "Debug 49998", "Debug 49999");
+    }
+}
@@ -0,0 +1,148 @@
+package assign251_2;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MemAppenderMonitor
+ */
+class MemAppenderMonitorTest {
+
+    private MemAppender appender;
+    private MemAppenderMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        appender = new MemAppender(new RingBufferEventStore(3));
+        monitor = new MemAppenderMonitor(appender, "MonitorTest");
+    }
+
+    @Test
+    void testStatisticsFollowAppendAndEvict() throws Exception {
+        appender.doAppend(createEvent("12345"));
+        appender.doAppend(createEvent("123"));
+        assertEquals(8L, monitor.getAttribute("EstimatedSize"));
+        assertEquals(2, monitor.getAttribute("CurrentSize"));
+
+        appender.doAppend(createEvent("1"));
+        appender.doAppend(createEvent("12")); // evicts "12345"
+        assertEquals(6L, monitor.getAttribute("EstimatedSize"));
+        assertEquals(3, monitor.getAttribute("CurrentSize"));
+        assertEquals(1L, monitor.getAttribute("DiscardedLogCount"));
+
+        appender.clear();
+        assertEquals(0L, monitor.getAttribute("EstimatedSize"));
+        assertEquals(0, monitor.getAttribute("CurrentSize"));
+        assertEquals(0L, monitor.getAttribute("RetainedBytes"));
+    }
+
+    @Test
+    void testStatisticsDoNotCopyTheBuffer() throws Exception {
+        MemAppender guarded = new MemAppender(new RingBufferEventStore(10) {
+            @Override
+            public List<LoggingEvent> snapshot() {
+                throw new AssertionError("Statistics should not copy the buffer");
+            }
+        });
+        MemAppenderMonitor guardedMonitor = new MemAppenderMonitor(guarded, "GuardedMonitorTest");
+        guarded.doAppend(createEvent("message"));
+
+        assertEquals(7L, guardedMonitor.getAttribute("EstimatedSize"));
+        assertEquals(1, guardedMonitor.getAttribute("CurrentSize"));
+        assertEquals(0L, guardedMonitor.getAttribute("DiscardedLogCount"));
+    }
+
+    @Test
+    void testLogMessages() throws Exception {
+        appender.doAppend(createEvent("First"));
+        appender.doAppend(createEvent("Second"));
+        assertArrayEquals(new String[] {"First", "Second"}, (String[]) monitor.getAttribute("LogMessages"));
+
+        assertEquals("Logs cleared successfully", monitor.invoke("clearLogs", null, null));
+        assertEquals(0, appender.getCurrentSize());
+    }
+
+    @Test
+    void testPagedAndDeltaRetrieval() throws Exception {
+        MemAppender large = new MemAppender(new RingBufferEventStore(5));
+        new MemAppenderMonitor(large, "PagingMonitorTest");
+        for (int i = 0; i < 7; i++) {
+            large.doAppend(createEvent("Message " + i)); // sequences 0-6, 0 and 1 evicted
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("assign251_2:type=MemAppenderMonitor,name=PagingMonitorTest");
+        String[] pageSignature = {"int", "int"};
+
+        CompositeData[] page = (CompositeData[]) server.invoke(name, "getLogPage", new Object[] {1, 2}, pageSignature);
+        assertEquals(2, page.length);
+        assertEquals("Message 3", page[0].get("message"));
+        assertEquals(3L, page[0].get("sequence"));
+        assertEquals("INFO", page[0].get("level"));
+        assertEquals("TestLogger", page[0].get("logger"));
+
+        CompositeData[] tail = (CompositeData[]) server.invoke(name, "getLogPage", new Object[] {4, 10}, pageSignature);
+        assertEquals(1, tail.length);
+        assertEquals("Message 6", tail[0].get("message"));
+
+        CompositeData[] all = (CompositeData[]) server.invoke(name, "getLogsSince",
+                new Object[] {-1L}, new String[] {"long"});
+        assertEquals(5, all.length);
+        long last = (Long) all[all.length - 1].get("sequence");
+
+        large.doAppend(createEvent("Message 7"));
+        CompositeData[] delta = (CompositeData[]) server.invoke(name, "getLogsSince",
+                new Object[] {last}, new String[] {"long"});
+        assertEquals(1, delta.length, "Only events after the last seen sequence should be returned");
+        assertEquals("Message 7", delta[0].get("message"));
+        assertEquals(last + 1, delta[0].get("sequence"));
+    }
+
+    @Test
+    void testSymbolTableStatistics() throws Exception {
+        assertEquals(0, monitor.getAttribute("SymbolCount"), "Object stores keep no dictionary");
+
+        MemAppender offHeap = new MemAppender(new OffHeapEventStore(10, 4096));
+        MemAppenderMonitor offHeapMonitor = new MemAppenderMonitor(offHeap, "SymbolMonitorTest");
+        for (int i = 0; i < 4; i++) {
+            offHeap.doAppend(createEvent("Message " + i));
+        }
+
+        assertEquals(2, offHeapMonitor.getAttribute("SymbolCount")); // logger and thread name
+        assertEquals(6.0 / 8, (Double) offHeapMonitor.getAttribute("SymbolHitRate"), 1e-9);
+        CompositeData[] logs = (CompositeData[]) offHeapMonitor.invoke("getLogsSince", new Object[] {-1L}, null);
+        assertEquals("TestLogger", logs[0].get("logger"));
+        assertEquals(Thread.currentThread().getName(), logs[0].get("thread"));
+    }
+
+    @Test
+    void testLevelStatistics() throws Exception {
+        LevelPartitionedEventStore store = new LevelPartitionedEventStore(3);
+        store.setLevelCapacity(Level.ERROR, 2);
+        MemAppender partitioned = new MemAppender(store);
+        MemAppenderMonitor levelMonitor = new MemAppenderMonitor(partitioned, "LevelMonitorTest");
+        partitioned.doAppend(createEvent(Level.ERROR, "Failure"));
+        partitioned.doAppend(createEvent(Level.INFO, "Info 1"));
+        partitioned.doAppend(createEvent(Level.INFO, "Info 2"));
+        partitioned.doAppend(createEvent(Level.WARN, "Warning")); // evicts Info 1
+
+        CompositeData counts = (CompositeData) levelMonitor.getAttribute("LevelCounts");
+        assertEquals(1L, counts.get("ERROR"));
+        assertEquals(1L, counts.get("WARN"));
+        assertEquals(1L, counts.get("INFO"));
+        CompositeData discarded = (CompositeData) levelMonitor.getAttribute("LevelDiscardedCounts");
+        assertEquals(1L, discarded.get("INFO"));
+        assertEquals(0L, discarded.get("ERROR"));
+        assertEquals(2L, ((CompositeData) levelMonitor.getAttribute("LevelCapacities")).get("ERROR"));
+        assertEquals(0L, ((CompositeData) monitor.getAttribute("LevelCapacities")).get("ERROR"));
+    }
+}
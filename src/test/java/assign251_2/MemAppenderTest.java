@@ -1,13 +1,27 @@
 package assign251_2;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.log4j.Logger;
 import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.SimpleLayout;
 import org.apache.log4j.spi.LoggingEvent;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.createEvent;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -173,4 +187,334 @@ class MemAppenderTest {
 
         testLogger.removeAllAppenders(); // Clean up
     }
-}
\ No newline at end of file
+
+    @Test
+    void testByteBudgetEviction() throws Exception {
+        Logger testLogger = Logger.getLogger("TestByteBudget");
+        testLogger.removeAllAppenders();
+        testLogger.addAppender(memAppender);
+        testLogger.setLevel(Level.DEBUG);
+
+        memAppender.setMaxSize(100);
+        testLogger.info("Message X"); // same size as the messages below
+        long eventSize = memAppender.getRetainedBytes();
+        memAppender.clear();
+
+        memAppender.setMaxBytes(eventSize * 3);
+        for (int i = 0; i < 5; i++) {
+            testLogger.info("Message " + i);
+        }
+        assertEquals(3, memAppender.getCurrentSize(), "Byte budget should be reached before maxSize");
+        assertEquals(2, memAppender.getDiscardedLogCount());
+        assertEquals(eventSize * 3, memAppender.getRetainedBytes());
+        assertEquals("Message 2", memAppender.getCurrentLogs().get(0).getRenderedMessage());
+
+        // The count limit still applies when it is reached first
+        memAppender.setMaxSize(2);
+        assertEquals(2, memAppender.getCurrentSize());
+        assertEquals(eventSize * 2, memAppender.getRetainedBytes());
+
+        // A single large event evicts several small ones
+        memAppender.setMaxSize(100);
+        testLogger.info("x".repeat((int) eventSize));
+        assertEquals(1, memAppender.getCurrentSize(), "The newest event is always kept");
+
+        MemAppenderMonitor monitor = new MemAppenderMonitor(memAppender, "ByteBudgetTest");
+        assertEquals(eventSize * 3, monitor.getAttribute("MaxBytes"));
+        assertEquals(memAppender.getRetainedBytes(), monitor.getAttribute("RetainedBytes"));
+
+        memAppender.printLogs();
+        assertEquals(0, memAppender.getRetainedBytes(), "Printed events should release their bytes");
+
+        testLogger.removeAllAppenders(); // Clean up
+    }
+
+    @Test
+    void testAppendDoesNotRenderThrowables() {
+        AtomicInteger rendered = new AtomicInteger();
+        Throwable failure = new IllegalStateException("boom") {
+            @Override
+            public void printStackTrace(PrintWriter writer) {
+                rendered.incrementAndGet();
+                super.printStackTrace(writer);
+            }
+        };
+        MemAppender appender = new MemAppender(new RingBufferEventStore(1));
+        Logger logger = Logger.getLogger("TestThrowableSize");
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.ERROR, "Failed", failure));
+        long withThrowable = appender.getRetainedBytes();
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.ERROR, "Failed", null));
+
+        assertEquals(0, rendered.get(), "Sizing an event should not render its stack trace");
+        assertEquals(EventSizeEstimator.THROWABLE_BYTES, withThrowable - appender.getRetainedBytes());
+    }
+
+    @Test
+    void testClosedAppenderRejectsEvents() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.doAppend(createEvent(Level.INFO, "Before close"));
+        appender.close();
+        appender.doAppend(createEvent(Level.INFO, "After close"));
+
+        assertEquals(0, appender.getCurrentSize(), "Events appended after close should be dropped");
+    }
+
+    @Test
+    void testDrainToWriterStreamAndChannel() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.setLayout(new VelocityLayout("[$p] $m$n"));
+        appender.doAppend(createEvent(Level.INFO, "First ✓"));
+        appender.doAppend(createEvent(Level.WARN, "Second"));
+
+        StringWriter writer = new StringWriter();
+        assertEquals(2, appender.drainTo(writer));
+        String separator = System.lineSeparator();
+        assertEquals("[INFO] First ✓" + separator + "[WARN] Second" + separator, writer.toString());
+        assertEquals(0, appender.getCurrentSize());
+        assertEquals(0, appender.getRetainedBytes(), "Drained events should release their bytes");
+        assertEquals(0, appender.drainTo(new StringWriter()), "Nothing left to drain");
+
+        appender.doAppend(createEvent(Level.INFO, "Streamed ✓"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, appender.drainTo(out));
+        assertEquals("[INFO] Streamed ✓" + separator, out.toString(StandardCharsets.UTF_8));
+
+        appender.setLayout(null);
+        appender.doAppend(createEvent(Level.INFO, "Channelled"));
+        ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+        assertEquals(1, appender.drainTo(Channels.newChannel(channelOut)));
+        assertEquals("Channelled" + separator, channelOut.toString(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> appender.drainTo((StringWriter) null));
+        assertThrows(IllegalArgumentException.class, () -> appender.drainTo((ByteArrayOutputStream) null));
+    }
+
+    @Test
+    void testDrainToWritesInChunks() throws Exception {
+        MemAppender appender = new MemAppender(new ConcurrentRingEventStore(1000));
+        appender.setLayout(new VelocityLayout("$m$n"));
+        String message = "x".repeat(1000);
+        for (int i = 0; i < 200; i++) {
+            appender.doAppend(createEvent(Level.INFO, message));
+        }
+
+        List<Integer> writes = new ArrayList<>();
+        StringWriter target = new StringWriter();
+        Writer counting = new FilterWriter(target) {
+            @Override
+            public void write(String str, int off, int len) {
+                writes.add(len);
+                target.write(str, off, len);
+            }
+        };
+        assertEquals(200, appender.drainTo(counting));
+        assertEquals(200 * (message.length() + System.lineSeparator().length()), target.toString().length());
+        assertTrue(writes.size() > 1 && writes.size() < 10, "Events should be written in a few large chunks");
+        assertEquals(0, appender.getCurrentSize());
+    }
+
+    @Test
+    void testDrainToStreamEncodesAroundLargeEvents() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(10));
+        appender.setLayout(new VelocityLayout("$p $m$n"));
+        String large = "\u00e9".repeat(70 * 1024); // larger than the encode buffer
+        appender.doAppend(createEvent(Level.INFO, "Before"));
+        appender.doAppend(createEvent(Level.INFO, large));
+        appender.doAppend(createEvent(Level.WARN, "After"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, appender.drainTo(out));
+        String separator = System.lineSeparator();
+        assertEquals("INFO Before" + separator + "INFO " + large + separator + "WARN After" + separator,
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParallelEventStringsKeepOrder() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(20000));
+        appender.setLayout(new VelocityLayout("#if($p == \"WARN\")! #end$m"));
+        for (int i = 0; i < 20000; i++) {
+            appender.doAppend(createEvent(i % 3 == 0 ? Level.WARN : Level.INFO, "Message " + i));
+        }
+        assertEquals(MemAppender.DEFAULT_PARALLEL_FORMAT_THRESHOLD, appender.getParallelFormatThreshold());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            appender.setFormatPool(pool);
+            appender.setParallelFormatThreshold(1000);
+            List<String> parallel = appender.getEventStrings();
+            appender.setParallelFormatThreshold(0);
+            List<String> sequential = appender.getEventStrings();
+
+            assertEquals(20000, parallel.size());
+            assertEquals(sequential, parallel, "Parallel formatting should keep the event order");
+            assertEquals("! Message 0", parallel.get(0));
+            assertEquals("Message 19999", parallel.get(19999));
+            assertThrows(UnsupportedOperationException.class, () -> parallel.add("x"));
+        } finally {
+            pool.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> appender.setParallelFormatThreshold(-1));
+    }
+
+    @Test
+    void testOtherLayoutsAreFormattedOnTheCallingThread() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(5000));
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        appender.setLayout(new SimpleLayout() {
+            @Override
+            public String format(LoggingEvent event) {
+                threads.add(Thread.currentThread());
+                return super.format(event);
+            }
+        });
+        appender.setParallelFormatThreshold(10);
+        for (int i = 0; i < 5000; i++) {
+            appender.doAppend(createEvent(Level.INFO, "Message " + i));
+        }
+        assertEquals(5000, appender.getEventStrings().size());
+        assertEquals(Set.of(Thread.currentThread()), threads, "Layouts that may not be thread-safe stay sequential");
+    }
+
+    @Test
+    void testOtherLayoutsAreNeverFormattedConcurrently() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(200));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        appender.setLayout(new SimpleLayout() {
+            @Override
+            public String format(LoggingEvent event) {
+                if (active.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.yield(); // widens the window another reader could enter
+                String formatted = super.format(event);
+                active.decrementAndGet();
+                return formatted;
+            }
+        });
+        for (int i = 0; i < 200; i++) {
+            appender.doAppend(createEvent(Level.INFO, "Message " + i));
+        }
+
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                for (int round = 0; round < 5; round++) {
+                    assertEquals(200, appender.getEventStrings().size());
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(0, overlaps.get(), "Layouts that are not thread-safe should be called one at a time");
+    }
+
+    @Test
+    void testFormatCache() {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(3));
+        AtomicInteger formats = new AtomicInteger();
+        VelocityLayout layout = new VelocityLayout("$m") {
+            @Override
+            public String format(LoggingEvent event) {
+                formats.incrementAndGet();
+                return super.format(event);
+            }
+        };
+        appender.setLayout(layout);
+        appender.setFormatCached(true, false);
+        assertTrue(appender.isFormatCached());
+        for (int i = 0; i < 3; i++) {
+            appender.doAppend(createEvent(Level.INFO, "Message " + i));
+        }
+        long eventBytes = appender.getRetainedBytes();
+
+        assertEquals(List.of("Message 0", "Message 1", "Message 2"), appender.getEventStrings());
+        assertEquals(3, formats.get());
+        assertEquals(List.of("Message 0", "Message 1", "Message 2"), appender.getEventStrings());
+        assertEquals(3, formats.get(), "Cached strings should not be formatted again");
+        assertEquals(3, appender.getFormatCacheSize());
+        assertEquals(eventBytes + appender.getFormatCacheBytes(), appender.getRetainedBytes(),
+                "Cached strings count toward the retained bytes");
+
+        appender.doAppend(createEvent(Level.INFO, "Message 3")); // evicts Message 0 and its string
+        assertEquals(2, appender.getFormatCacheSize());
+        assertEquals(List.of("Message 1", "Message 2", "Message 3"), appender.getEventStrings());
+        assertEquals(4, formats.get(), "Only the new event should be formatted");
+
+        layout.setPattern("$p $m");
+        assertEquals("INFO Message 1", appender.getEventStrings().get(0), "A new pattern invalidates the cache");
+        appender.setLayout(new VelocityLayout("$m!"));
+        assertEquals(0, appender.getFormatCacheSize());
+        assertEquals("Message 1!", appender.getEventStrings().get(0));
+
+        appender.clear();
+        assertEquals(0, appender.getRetainedBytes());
+        appender.setFormatCached(false, false);
+        assertEquals(0, appender.getFormatCacheBytes());
+    }
+
+    @Test
+    void testFormatCacheOnAppend() {
+        MemAppender appender = new MemAppender(new ConcurrentRingEventStore(10));
+        appender.setLayout(new VelocityLayout("[$p] $m"));
+        appender.setFormatCached(true, true);
+        appender.doAppend(createEvent(Level.WARN, "Eager"));
+        assertEquals(1, appender.getFormatCacheSize(), "Events should be formatted as they are appended");
+        assertEquals(List.of("[WARN] Eager"), appender.getEventStrings());
+
+        appender.setFormatCached(false, false);
+        assertEquals(0, appender.getFormatCacheSize());
+        appender.setFormatCached(true, false);
+        appender.getEventStrings();
+        long withCache = appender.getRetainedBytes();
+        appender.setFormatCached(false, false);
+        assertTrue(appender.getRetainedBytes() < withCache, "Disabling the cache releases its bytes");
+
+        MemAppender offHeap = new MemAppender(new OffHeapEventStore(10, 4096));
+        assertThrows(IllegalStateException.class, () -> offHeap.setFormatCached(true, false));
+    }
+
+    @Test
+    void testFormatCacheOnAppendWithPatternLayout() throws Exception {
+        MemAppender appender = new MemAppender(new ConcurrentRingEventStore(4096));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        appender.setLayout(new PatternLayout("%p %m%n") {
+            @Override
+            public String format(LoggingEvent event) {
+                if (active.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.yield(); // PatternLayout reuses one buffer across calls
+                String formatted = super.format(event);
+                active.decrementAndGet();
+                return formatted;
+            }
+        });
+        appender.setFormatCached(true, true);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    appender.doAppend(createEvent(Level.INFO, "Producer " + thread + " message " + i));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(0, overlaps.get(), "Producers should not format with PatternLayout at the same time");
+        assertEquals(1000, appender.getFormatCacheSize());
+        for (String formatted : appender.getEventStrings()) {
+            assertTrue(formatted.matches("INFO Producer \\d message \\d+\\R"), formatted);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OffHeapEventStore
+ */
+class OffHeapEventStoreTest {
+
+    @Test
+    void testRoundTripsEventFields() {
+        OffHeapEventStore store = new OffHeapEventStore(10, 4096);
+        Logger logger = Logger.getLogger("OffHeapLogger");
+        LoggingEvent original = new LoggingEvent(Logger.class.getName(), logger, 1234L, Level.WARN,
+                "Grüße ✓", "worker-1", new ThrowableInformation(new String[] {"java.lang.Error: boom", "\tat X"}),
+                null, null, null);
+        store.add(original);
+
+        LoggingEvent copy = store.snapshot().get(0);
+        assertEquals(1234L, copy.timeStamp);
+        assertEquals(Level.WARN, copy.getLevel());
+        assertEquals("OffHeapLogger", copy.getLoggerName());
+        assertEquals("worker-1", copy.getThreadName());
+        assertEquals("Grüße ✓", copy.getRenderedMessage());
+        assertArrayEquals(original.getThrowableStrRep(), copy.getThrowableStrRep());
+        assertEquals(EventSizeEstimator.estimate(original), EventSizeEstimator.estimate(copy));
+    }
+
+    @Test
+    void testRoundTripsNullAndEmptyMessages() {
+        OffHeapEventStore store = new OffHeapEventStore(10, 4096);
+        store.add(createEvent(Level.INFO, null));
+        store.add(createEvent(Level.INFO, ""));
+
+        List<LoggingEvent> copies = store.snapshot();
+        assertNull(copies.get(0).getRenderedMessage(), "A null message should stay null");
+        assertEquals("", copies.get(1).getRenderedMessage());
+    }
+
+    @Test
+    void testEvictsOldestWhenFull() {
+        OffHeapEventStore store = new OffHeapEventStore(3, 4096);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(2, evicted.size(), "Should have evicted 2 events");
+        assertEquals("Message 0", evicted.get(0).getRenderedMessage());
+        assertMessages(store.snapshot(), "Message 2", "Message 3", "Message 4");
+    }
+
+    @Test
+    void testEvictsToMakeRoomInSlab() {
+        // each record is 36 header bytes plus 9 message bytes, so 3 fit in 160 bytes
+        OffHeapEventStore store = new OffHeapEventStore(100, 160);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 10; i++) {
+            store.add(createEvent("Message " + i)); // wraps around the slab
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(7, evicted.size());
+        assertEquals(3 * 45, store.getUsedBytes());
+        assertMessages(store.snapshot(), "Message 7", "Message 8", "Message 9");
+
+        store.add(createEvent("x".repeat(200))); // larger than the slab
+        assertEquals(8, evicted.size(), "An event that can never fit is dropped");
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testSnapshotFromSequenceAndResize() {
+        OffHeapEventStore store = new OffHeapEventStore(4, 4096);
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i)); // sequences 0-5, 2-5 stored
+        }
+
+        EventSnapshot delta = store.snapshotFrom(4);
+        assertEquals(2, delta.size());
+        assertEquals(4, delta.getSequence(0));
+
+        store.setCapacity(2);
+        assertMessages(store.snapshot(), "Message 4", "Message 5");
+        assertTrue(store.evictOldest());
+        assertMessages(store.snapshot(), "Message 5");
+
+        assertMessages(store.drain(), "Message 5");
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+        store.add(createEvent("Message 6"));
+        assertEquals(6, store.snapshotFrom(0).getSequence(0), "Sequences are never reused");
+    }
+
+    @Test
+    void testEvictionRecordsSkipDecoding() {
+        OffHeapEventStore store = new OffHeapEventStore(2, 4096);
+        List<Long> sequences = new ArrayList<>();
+        LoggingEvent first = createEvent(Level.WARN, "Message 0");
+        store.setEvictionListener(new EventStore.EvictionListener() {
+            @Override
+            public void onEvict(LoggingEvent event) {
+                fail("Evicted events should not be decoded");
+            }
+
+            @Override
+            public boolean needsEvictedEvents() {
+                return false;
+            }
+
+            @Override
+            public void onEvictRecord(long sequence, Level level, int messageChars, long estimatedBytes) {
+                sequences.add(sequence);
+                if (sequence == 0) {
+                    assertEquals(Level.WARN, level);
+                    assertEquals(9, messageChars);
+                    assertEquals(0, estimatedBytes, "Record bytes are reported by getRecordBytes");
+                }
+            }
+        });
+
+        store.add(first);
+        for (int i = 1; i < 4; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        assertEquals(List.of(0L, 1L), sequences);
+
+        OffHeapEventStore appenderStore = new OffHeapEventStore(2, 4096);
+        MemAppender appender = new MemAppender(appenderStore);
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(createEvent(Level.ERROR, "Message " + i));
+        }
+        assertEquals(2, appender.getCurrentSize(Level.ERROR));
+        assertEquals(3, appender.getDiscardedLogCount(Level.ERROR));
+        assertEquals(appenderStore.getUsedBytes(), appender.getRetainedBytes(), "Retained bytes are the record bytes");
+    }
+
+    @Test
+    void testByteBudgetCountsRecordBytes() {
+        OffHeapEventStore store = new OffHeapEventStore(100, 4096);
+        MemAppender appender = new MemAppender(store);
+        appender.doAppend(createEvent("Message 0"));
+        long recordBytes = store.getUsedBytes();
+        assertEquals(recordBytes, appender.getRetainedBytes());
+        assertTrue(recordBytes < EventSizeEstimator.estimate(createEvent("Message 0")),
+                "A record is smaller than the heap estimate of the event");
+
+        appender.setMaxBytes(recordBytes * 3);
+        for (int i = 1; i < 5; i++) {
+            appender.doAppend(createEvent("Message " + i));
+        }
+        assertEquals(3, appender.getCurrentSize(), "The budget should hold three records");
+        assertEquals(3 * recordBytes, appender.getRetainedBytes());
+    }
+
+    @Test
+    void testMemAppenderWithOffHeapStore() {
+        MemAppender appender = MemAppender.createNewInstance(new OffHeapEventStore(3, 4096));
+        Logger logger = Logger.getLogger("TestOffHeapStore");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        for (int i = 0; i < 5; i++) {
+            logger.info("Message " + i);
+        }
+
+        assertEquals(3, appender.getCurrentSize());
+        assertEquals(2, appender.getDiscardedLogCount());
+        appender.setLayout(new VelocityLayout("[$p] $c $m"));
+        assertEquals("[INFO] TestOffHeapStore Message 4", appender.getEventStrings().get(2));
+
+        appender.clear();
+        assertEquals(0, appender.getRetainedBytes());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+}
@@ -0,0 +1,157 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RingBufferEventStore and the ring buffer mode of MemAppender
+ */
+class RingBufferEventStoreTest {
+
+    @AfterEach
+    void tearDown() {
+        MemAppender.resetInstance(); // Clean up after each test
+    }
+
+    @Test
+    void testEvictsOldestWhenFull() {
+        RingBufferEventStore store = new RingBufferEventStore(3);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        assertEquals(3, store.size());
+        assertEquals(2, evicted.size(), "Should have evicted 2 events");
+        assertEquals("Message 0", evicted.get(0).getRenderedMessage());
+        assertMessages(store.snapshot(), "Message 2", "Message 3", "Message 4");
+    }
+
+    @Test
+    void testGrowsBeyondInitialSlots() {
+        RingBufferEventStore store = new RingBufferEventStore(100);
+        for (int i = 0; i < 150; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        List<LoggingEvent> events = store.snapshot();
+        assertEquals(100, events.size());
+        assertEquals("Message 50", events.get(0).getRenderedMessage());
+        assertEquals("Message 149", events.get(99).getRenderedMessage());
+    }
+
+    @Test
+    void testShrinkAndGrowKeepOrder() {
+        RingBufferEventStore store = new RingBufferEventStore(4);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i)); // wraps around the ring
+        }
+        store.setCapacity(2);
+        assertEquals(4, evicted.size(), "Shrinking should evict the oldest events");
+        assertMessages(store.snapshot(), "Message 4", "Message 5");
+
+        store.setCapacity(5);
+        store.add(createEvent("Message 6"));
+        assertMessages(store.snapshot(), "Message 4", "Message 5", "Message 6");
+    }
+
+    @Test
+    void testSnapshotFromSequence() {
+        RingBufferEventStore store = new RingBufferEventStore(3);
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent("Message " + i)); // sequences 0-4, 2-4 stored
+        }
+
+        EventSnapshot all = store.snapshotFrom(0);
+        assertEquals(3, all.size());
+        assertEquals(2, all.getSequence(0));
+
+        EventSnapshot delta = store.snapshotFrom(4);
+        assertEquals(1, delta.size());
+        assertEquals("Message 4", delta.getEvents().get(0).getRenderedMessage());
+        assertEquals(0, store.snapshotFrom(5).size());
+
+        store.clear();
+        store.add(createEvent("Message 5"));
+        assertEquals(5, store.snapshotFrom(0).getSequence(0), "Sequences are never reused");
+    }
+
+    @Test
+    void testSnapshotPageMatchesDefault() {
+        RingBufferEventStore store = new RingBufferEventStore(4);
+        ListEventStore list = new ListEventStore(new ArrayList<>());
+        list.setCapacity(4);
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i));
+            list.add(createEvent("Message " + i));
+        }
+        EventStore unoptimized = new StripedEventStore(4, 1);
+
+        EventSnapshot page = store.snapshotPage(1, 2);
+        assertMessages(page.getEvents(), "Message 3", "Message 4");
+        assertEquals(3, page.getSequence(0));
+        assertMessages(list.snapshotPage(1, 2).getEvents(), "Message 3", "Message 4");
+        assertEquals(3, list.snapshotPage(1, 2).getSequence(0));
+        assertMessages(store.snapshotPage(3, 10).getEvents(), "Message 5");
+        assertEquals(0, store.snapshotPage(10, 2).size());
+        assertEquals(0, store.snapshotPage(0, 0).size());
+
+        for (int i = 0; i < 6; i++) {
+            unoptimized.add(createEvent("Message " + i));
+        }
+        assertMessages(unoptimized.snapshotPage(1, 2).getEvents(), "Message 3", "Message 4");
+        assertEquals(0, unoptimized.snapshotPage(10, 2).size());
+    }
+
+    @Test
+    void testDrain() {
+        RingBufferEventStore store = new RingBufferEventStore(3);
+        store.add(createEvent("Message 1"));
+        store.add(createEvent("Message 2"));
+
+        assertMessages(store.drain(), "Message 1", "Message 2");
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testMemAppenderDefaultsToRingBuffer() {
+        MemAppender appender = new MemAppender();
+        assertTrue(appender.getStore() instanceof RingBufferEventStore);
+
+        Logger logger = Logger.getLogger("TestRingBufferMode");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        appender.setMaxSize(3);
+        for (int i = 0; i < 5; i++) {
+            logger.info("Message " + i);
+        }
+
+        assertEquals(3, appender.getCurrentSize());
+        assertEquals(2, appender.getDiscardedLogCount());
+        assertMessages(appender.getCurrentLogs(), "Message 2", "Message 3", "Message 4");
+
+        appender.setMaxSize(1);
+        assertEquals(4, appender.getDiscardedLogCount());
+        assertMessages(appender.getCurrentLogs(), "Message 4");
+
+        appender.setLayout(new VelocityLayout("$m"));
+        assertEquals(List.of("Message 4"), appender.getEventStrings());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+}
@@ -16,6 +16,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
+import java.util.function.Supplier;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Stress tests for performance comparison
@@ -264,4 +266,138 @@ class StressTest {
             // Don't fail the test, just continue
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Contention benchmark: throughput of 1 to N producer threads for the
+     * original synchronized list appender against the lock-free ring
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void testConcurrentAppendScaling(int threads) throws InterruptedException {
+        System.out.println("\n=== Contention test: " + threads + " threads ===");
+        int perThread = 200000 / threads;
+
+        // Original behaviour: synchronized doAppend and remove(0) on an ArrayList
+        long listOpsPerSec = measureThroughput(() -> new MemAppender(new ArrayList<>()) {
+            @Override
+            public synchronized void doAppend(LoggingEvent event) {
+                super.doAppend(event);
+            }
+        }, threads, perThread);
+        long ringOpsPerSec = measureThroughput(
+                () -> new MemAppender(new RingBufferEventStore()), threads, perThread);
+        long concurrentOpsPerSec = measureThroughput(
+                () -> new MemAppender(new ConcurrentRingEventStore()), threads, perThread);
+
+        System.out.println("Synchronized ArrayList - " + listOpsPerSec + " events/s");
+        System.out.println("RingBufferEventStore - " + ringOpsPerSec + " events/s");
+        System.out.println("ConcurrentRingEventStore - " + concurrentOpsPerSec + " events/s");
+    }
+
+    /**
+     * Heap retained by a full buffer of live events compared with the
+     * same events encoded into an off-heap slab
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {10000, 100000})
+    void testOffHeapRetainedHeap(int maxSize) {
+        System.out.println("\n=== Retained heap: " + maxSize + " events ===");
+
+        MemAppender ring = new MemAppender(new RingBufferEventStore(maxSize));
+        long ringMemory = measureRetainedHeap(ring, maxSize);
+        long ringBytes = ring.getRetainedBytes();
+        ring.close(); // releases the events before the next measurement
+        OffHeapEventStore offHeapStore = new OffHeapEventStore(maxSize, maxSize * 128);
+        MemAppender offHeap = new MemAppender(offHeapStore);
+        long offHeapMemory = measureRetainedHeap(offHeap, maxSize);
+
+        System.out.println("RingBufferEventStore - Heap: " + ringMemory + "MB");
+        System.out.println("OffHeapEventStore - Heap: " + offHeapMemory + "MB");
+        assertTrue(offHeapMemory <= ringMemory, "Off-heap records should not retain more heap than live events");
+        assertEquals(offHeapStore.getUsedBytes(), offHeap.getRetainedBytes(), "Retained bytes are the record bytes");
+        assertTrue(offHeap.getRetainedBytes() < ringBytes, "Records should be smaller than the heap estimate of the events");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10000, 50000})
+    void testCompactCaptureRetainedHeap(int maxSize) {
+        System.out.println("\n=== Retained heap with 1KB message objects: " + maxSize + " events ===");
+
+        MemAppender compact = new MemAppender(new RingBufferEventStore(maxSize));
+        compact.setCompactCapture(true);
+        long compactMemory = measureRetainedPayloadHeap(compact, maxSize);
+        compact = null; // collected before the next measurement
+        long fullMemory = measureRetainedPayloadHeap(new MemAppender(new RingBufferEventStore(maxSize)), maxSize);
+
+        System.out.println("Original events - Heap: " + fullMemory + "MB");
+        System.out.println("Compact capture - Heap: " + compactMemory + "MB");
+    }
+
+    private long measureRetainedPayloadHeap(MemAppender appender, int count) {
+        long startMemory = getMemoryUsage();
+        Logger logger = Logger.getLogger("RetainedPayloadTest");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        for (int i = 0; i < count; i++) {
+            byte[] body = new byte[1024];
+            logger.debug(new Object() {
+                @Override
+                public String toString() {
+                    return "Request body of " + body.length + " bytes";
+                }
+            });
+        }
+
+        long retained = getMemoryUsage() - startMemory;
+        assertEquals(count, appender.getCurrentSize());
+        logger.removeAllAppenders(); // Clean up, keeps the appender reachable until here
+        return retained;
+    }
+
+    private long measureRetainedHeap(MemAppender appender, int count) {
+        long startMemory = getMemoryUsage();
+        Logger logger = Logger.getLogger("RetainedHeapTest");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+
+        for (int i = 0; i < count; i++) {
+            logger.info("Retained message " + i);
+        }
+
+        long retained = getMemoryUsage() - startMemory;
+        assertEquals(count, appender.getCurrentSize());
+        logger.removeAppender(appender); // Clean up without closing, keeps the appender reachable until here
+        return retained;
+    }
+
+    private long measureThroughput(Supplier<MemAppender> factory, int threads, int perThread)
+            throws InterruptedException {
+        MemAppender appender = factory.get();
+        appender.setMaxSize(5000);
+        Logger logger = Logger.getLogger("ContentionTest");
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger,
+                System.currentTimeMillis(), Level.INFO, "Contention message", null);
+
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    appender.doAppend(event);
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long elapsed = Math.max(1, System.nanoTime() - startTime);
+        return (long) threads * perThread * 1_000_000_000L / elapsed;
+    }
+}
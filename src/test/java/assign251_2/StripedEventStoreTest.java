@@ -0,0 +1,210 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StripedEventStore
+ */
+class StripedEventStoreTest {
+
+    @Test
+    void testSingleThreadKeepsStripeCapacity() {
+        StripedEventStore store = new StripedEventStore(8, 4);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 5; i++) {
+            store.add(createEvent("Message " + i, i));
+        }
+
+        // one thread writes to a single stripe of ceil(8 / 4) events
+        assertEquals(2, store.size());
+        assertEquals(3, evicted.size());
+        assertMessages(store.snapshot(), "Message 3", "Message 4");
+    }
+
+    @Test
+    void testMergesStripesByTimestamp() throws InterruptedException {
+        StripedEventStore store = new StripedEventStore(100, 4);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    store.add(createEvent(id + ":" + i, i * 4L + id));
+                }
+            }));
+        }
+        for (int t = producers.size() - 1; t >= 0; t--) {
+            producers.get(t).start();
+            producers.get(t).join(); // added newest thread first, the merge must restore timestamp order
+        }
+
+        EventSnapshot snapshot = store.snapshotFrom(0);
+        assertEquals(40, snapshot.size());
+        Set<Long> sequences = new HashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(i, snapshot.getEvents().get(i).getTimeStamp(), "Merged view should be in timestamp order");
+            assertTrue(sequences.add(snapshot.getSequence(i)), "Sequences should be unique");
+        }
+    }
+
+    @Test
+    void testStripesNumberTheirOwnEvents() throws InterruptedException {
+        StripedEventStore store = new StripedEventStore(100, 2);
+        store.add(createEvent("Message 0", 0));
+        store.add(createEvent("Message 1", 1));
+        Thread other = new Thread(() -> store.add(createEvent("Message 2", 2)));
+        while (other.getId() % 2 == Thread.currentThread().getId() % 2) {
+            other = new Thread(() -> store.add(createEvent("Message 2", 2))); // pick the other stripe
+        }
+        other.start();
+        other.join();
+
+        // stripe-local sequence * 2 + stripe index
+        long stripe = Thread.currentThread().getId() % 2;
+        EventSnapshot snapshot = store.snapshotFrom(0);
+        assertMessages(snapshot.getEvents(), "Message 0", "Message 1", "Message 2");
+        assertEquals(stripe, snapshot.getSequence(0));
+        assertEquals(2 + stripe, snapshot.getSequence(1));
+        assertEquals(1 - stripe, snapshot.getSequence(2));
+    }
+
+    @Test
+    void testConcurrentProducersStayWithinBound() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5000;
+        StripedEventStore store = new StripedEventStore(1000, 4);
+        AtomicLong evicted = new AtomicLong();
+        store.setEvictionListener(event -> evicted.incrementAndGet());
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.add(createEvent(id + ":" + i, System.currentTimeMillis()));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        List<LoggingEvent> events = store.snapshot();
+        assertTrue(events.size() <= 1000 + store.getStripeCount() - 1);
+        assertEquals(threads * perThread, events.size() + evicted.get(),
+                "Every event should be either stored or counted as evicted");
+
+        Set<String> unique = new HashSet<>();
+        for (LoggingEvent event : events) {
+            assertTrue(unique.add(event.getRenderedMessage()), "Snapshot should not repeat events");
+        }
+    }
+
+    @Test
+    void testSnapshotFromSequence() throws InterruptedException {
+        StripedEventStore store = new StripedEventStore(100, 2);
+        store.add(createEvent("Message 0", 0));
+        Thread other = new Thread(() -> store.add(createEvent("Message 1", 1)));
+        other.start();
+        other.join();
+        store.add(createEvent("Message 2", 2));
+
+        EventSnapshot all = store.snapshotFrom(0);
+        assertMessages(all.getEvents(), "Message 0", "Message 1", "Message 2");
+        Set<Long> sequences = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue(sequences.add(all.getSequence(i)), "Sequences should be unique");
+        }
+
+        long last = all.getSequence(2);
+        EventSnapshot after = store.snapshotFrom(last + 1);
+        for (int i = 0; i < after.size(); i++) {
+            assertTrue(after.getSequence(i) > last);
+        }
+        store.add(createEvent("Message 3", 3));
+        EventSnapshot delta = store.snapshotFrom(last + 1);
+        assertEquals("Message 3", delta.getEvents().get(delta.size() - 1).getRenderedMessage());
+    }
+
+    @Test
+    void testEvictOldestAcrossStripes() throws InterruptedException {
+        StripedEventStore store = new StripedEventStore(10, 2);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        store.add(createEvent("Message 0", 1));
+        Thread other = new Thread(() -> store.add(createEvent("Message 1", 0)));
+        while (other.getId() % 2 == Thread.currentThread().getId() % 2) {
+            other = new Thread(() -> store.add(createEvent("Message 1", 0))); // pick the other stripe
+        }
+        other.start();
+        other.join();
+
+        assertTrue(store.evictOldest());
+        assertEquals("Message 1", evicted.get(0).getRenderedMessage(), "The event with the earliest timestamp is the oldest");
+        assertTrue(store.evictOldest());
+        assertFalse(store.evictOldest());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testResizeClearAndDrain() {
+        StripedEventStore store = new StripedEventStore(8, 2);
+        for (int i = 0; i < 4; i++) {
+            store.add(createEvent("Message " + i, i));
+        }
+        store.setCapacity(4);
+        assertEquals(4, store.getCapacity());
+        assertMessages(store.snapshot(), "Message 2", "Message 3");
+
+        assertMessages(store.drain(), "Message 2", "Message 3");
+        assertEquals(0, store.size());
+
+        store.add(createEvent("Message 4", 4));
+        store.clear();
+        assertTrue(store.snapshot().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> store.setCapacity(0));
+        assertThrows(IllegalArgumentException.class, () -> new StripedEventStore(10, 0));
+    }
+
+    @Test
+    void testMemAppenderWithStripedStore() throws InterruptedException {
+        MemAppender appender = MemAppender.createNewInstance(new StripedEventStore(100, 4));
+        Logger logger = Logger.getLogger("TestStripedStore");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    logger.info("Message " + i);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(4000, appender.getCurrentSize() + appender.getDiscardedLogCount());
+        assertTrue(appender.getCurrentSize() <= 100 + 3);
+
+        logger.removeAllAppenders(); // Clean up
+    }
+}
@@ -0,0 +1,68 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SymbolTable and name interning in OffHeapEventStore
+ */
+class SymbolTableTest {
+
+    @Test
+    void testInternAndResolve() {
+        SymbolTable symbols = new SymbolTable(2);
+        int logger = symbols.intern("com.example.Service");
+        int thread = symbols.intern(new String("pool-1-thread-1"));
+
+        assertEquals(logger, symbols.intern("com.example.Service"));
+        assertEquals("pool-1-thread-1", symbols.resolve(thread));
+        assertEquals(-1, symbols.intern("overflow"), "A full table should not take new names");
+        assertEquals(2, symbols.size());
+        assertEquals(0.25, symbols.getHitRate(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> symbols.resolve(2));
+    }
+
+    @Test
+    void testConcurrentInternGivesOneId() throws InterruptedException {
+        SymbolTable symbols = new SymbolTable();
+        int[][] ids = new int[8][100];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < ids.length; t++) {
+            int id = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    ids[id][i] = symbols.intern("logger." + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, symbols.size());
+        for (int t = 1; t < ids.length; t++) {
+            assertArrayEquals(ids[0], ids[t], "Every thread should see the same ids");
+        }
+    }
+
+    @Test
+    void testOffHeapStoreFallsBackToInlineNames() {
+        SymbolTable symbols = new SymbolTable(1);
+        OffHeapEventStore store = new OffHeapEventStore(10, 4096, symbols);
+        Logger logger = Logger.getLogger("InternedLogger");
+        store.add(new LoggingEvent(Logger.class.getName(), logger, 1L, Level.INFO, "Message 1",
+                "unique-thread-1", null, null, null, null));
+
+        LoggingEvent copy = store.snapshot().get(0);
+        assertEquals("InternedLogger", copy.getLoggerName());
+        assertEquals("unique-thread-1", copy.getThreadName(), "Names that do not fit are kept in the record");
+        assertSame(symbols, store.getSymbolTable());
+        assertEquals(1, symbols.size());
+    }
+}
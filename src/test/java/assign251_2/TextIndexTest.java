@@ -0,0 +1,131 @@
+package assign251_2;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.openmbean.CompositeData;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TextIndex and MemAppender.search
+ */
+class TextIndexTest {
+
+    @Test
+    void testTokenize() {
+        assertArrayEquals(new String[] {"request", "req-7f3a", "failed", "e_timeout"},
+                TextIndex.tokenize("Request req-7f3a FAILED: E_TIMEOUT."));
+        assertEquals(0, TextIndex.tokenize(null).length);
+
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertArrayEquals(new String[] {"title"}, TextIndex.tokenize("TITLE"), "Terms should not depend on the locale");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void testPreparedTermsAreReused() {
+        AtomicInteger rendered = new AtomicInteger();
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), Logger.getLogger("TestLogger"), Level.INFO,
+                "Request req-1 failed", null) {
+            @Override
+            public String getRenderedMessage() {
+                rendered.incrementAndGet();
+                return super.getRenderedMessage();
+            }
+        };
+        TextIndex index = new TextIndex();
+        index.prepare(event);
+        assertEquals(1, rendered.get());
+        index.add(event, 0);
+        index.release();
+        assertEquals(1, rendered.get(), "add should not tokenize a prepared event again");
+        assertMessages(index.search("req-1 failed", 0), "Request req-1 failed");
+
+        index.add(createEvent("Request req-2 failed"), 1); // nothing prepared, tokenized in add
+        assertMessages(index.search("failed", 0), "Request req-1 failed", "Request req-2 failed");
+    }
+
+    @Test
+    void testResultsAreOrderedBySequence() {
+        TextIndex index = new TextIndex();
+        index.add(createEvent("Message 2 failed"), 2); // striped stores may index out of order
+        index.add(createEvent("Message 0 failed"), 0);
+        index.add(createEvent("Message 1 failed"), 1);
+
+        assertMessages(index.search("failed", 0), "Message 0 failed", "Message 1 failed", "Message 2 failed");
+    }
+
+    @Test
+    void testTermAndPhraseLookup() {
+        TextIndex index = new TextIndex();
+        index.add(createEvent("Request req-1 failed with E_TIMEOUT"), 0);
+        index.add(createEvent("Request req-2 succeeded"), 1);
+        index.add(createEvent("Timeout failed request req-3"), 2);
+
+        assertMessages(index.search("REQ-2", 0), "Request req-2 succeeded");
+        assertMessages(index.search("failed", 0), "Request req-1 failed with E_TIMEOUT", "Timeout failed request req-3");
+        assertMessages(index.search("failed with", 0), "Request req-1 failed with E_TIMEOUT");
+        assertMessages(index.search("failed", 1), "Timeout failed request req-3");
+        assertTrue(index.search("with failed", 0).isEmpty(), "Phrases keep their order");
+        assertTrue(index.search("unknown", 0).isEmpty());
+        assertTrue(index.search("   ", 0).isEmpty());
+    }
+
+    @Test
+    void testPostingsFollowEviction() {
+        TextIndex index = new TextIndex();
+        index.add(createEvent("alpha beta"), 0);
+        index.add(createEvent("beta gamma"), 1);
+        assertEquals(3, index.getTermCount());
+        long bytes = index.getEstimatedBytes();
+        assertTrue(bytes > 0);
+
+        index.remove(0);
+        assertEquals(1, index.size());
+        assertEquals(2, index.getTermCount(), "Terms of evicted events should be dropped");
+        assertTrue(index.getEstimatedBytes() < bytes);
+        assertTrue(index.search("alpha", 0).isEmpty());
+
+        index.clear();
+        assertEquals(0, index.getEstimatedBytes());
+    }
+
+    @Test
+    void testAppenderSearchWithAndWithoutIndex() throws Exception {
+        MemAppender appender = new MemAppender(new RingBufferEventStore(3));
+        MemAppenderMonitor monitor = new MemAppenderMonitor(appender, "TextIndexMonitorTest");
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(createEvent("Handled req-" + i + (i % 2 == 0 ? " with error" : "")));
+        }
+        assertMessages(appender.search("error", 0), "Handled req-2 with error", "Handled req-4 with error");
+        assertEquals(0L, monitor.getAttribute("TextIndexBytes"));
+
+        appender.setTextIndexed(true);
+        assertTrue(appender.isTextIndexed());
+        assertMessages(appender.search("error", 0), "Handled req-2 with error", "Handled req-4 with error");
+
+        appender.doAppend(createEvent("Handled req-5")); // the ring overwrites req-2
+        assertMessages(appender.search("error", 0), "Handled req-4 with error");
+        assertTrue(appender.search("req-2", 0).isEmpty());
+
+        CompositeData[] results = (CompositeData[]) monitor.invoke("searchLogs", new Object[] {"req-5", 10}, null);
+        assertEquals(1, results.length);
+        assertEquals("Handled req-5", results[0].get("message"));
+        assertTrue((Long) monitor.getAttribute("TextIndexBytes") > 0);
+        assertTrue((Integer) monitor.getAttribute("TextIndexTerms") > 0);
+        assertTrue((Double) monitor.getAttribute("AverageSearchMicros") > 0);
+
+        appender.clear();
+        assertTrue(appender.search("handled", 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> appender.search("handled", -1));
+    }
+}
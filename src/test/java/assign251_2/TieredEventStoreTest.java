@@ -0,0 +1,251 @@
+package assign251_2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.junit.jupiter.api.Test;
+import static assign251_2.EventFixtures.assertMessages;
+import static assign251_2.EventFixtures.createEvent;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TieredEventStore
+ */
+class TieredEventStoreTest {
+
+    @Test
+    void testSealsOldEventsIntoColdBlocks() {
+        TieredEventStore store = new TieredEventStore(100, 4, 3);
+        for (int i = 0; i < 10; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        // 10 events: two sealed blocks of 3, the newest 4 stay live
+        assertEquals(6, store.getColdCount());
+        assertEquals(4, store.getHotCount());
+        assertEquals(2, store.getBlockCount());
+        assertEquals(10, store.size());
+
+        List<LoggingEvent> events = store.snapshot();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Message " + i, events.get(i).getRenderedMessage());
+        }
+    }
+
+    @Test
+    void testColdEventsKeepTheirFields() {
+        TieredEventStore store = new TieredEventStore(10, 1, 1);
+        Logger logger = Logger.getLogger("TieredLogger");
+        LoggingEvent original = new LoggingEvent(Logger.class.getName(), logger, 42L, Level.ERROR, "Failed ✓",
+                "worker-2", new ThrowableInformation(new String[] {"java.lang.Error: boom", "\tat X"}),
+                null, null, null);
+        store.add(original);
+        store.add(createEvent("Newer"));
+        assertEquals(1, store.getColdCount());
+
+        LoggingEvent copy = store.snapshot().get(0);
+        assertEquals(42L, copy.timeStamp);
+        assertEquals(Level.ERROR, copy.getLevel());
+        assertEquals("TieredLogger", copy.getLoggerName());
+        assertEquals("worker-2", copy.getThreadName());
+        assertEquals("Failed ✓", copy.getRenderedMessage());
+        assertArrayEquals(original.getThrowableStrRep(), copy.getThrowableStrRep());
+    }
+
+    @Test
+    void testEvictsOldestAcrossTiers() {
+        TieredEventStore store = new TieredEventStore(5, 2, 2);
+        List<LoggingEvent> evicted = new ArrayList<>();
+        store.setEvictionListener(evicted::add);
+
+        for (int i = 0; i < 8; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        assertEquals(5, store.size());
+        assertEquals(3, evicted.size());
+        assertEquals("Message 0", evicted.get(0).getRenderedMessage());
+        assertEquals("Message 2", evicted.get(2).getRenderedMessage(), "Single events are evicted from a cold block");
+        assertMessages(store.snapshot(), "Message 3", "Message 4", "Message 5", "Message 6", "Message 7");
+
+        assertTrue(store.evictOldest());
+        store.setCapacity(2);
+        assertMessages(store.snapshot(), "Message 6", "Message 7");
+        assertEquals(6, evicted.size());
+    }
+
+    @Test
+    void testSnapshotFromSequenceAndDrain() {
+        TieredEventStore store = new TieredEventStore(4, 1, 2);
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i)); // sequences 0-5, 2-5 stored
+        }
+
+        EventSnapshot all = store.snapshotFrom(0);
+        assertEquals(4, all.size());
+        assertEquals(2, all.getSequence(0));
+        EventSnapshot delta = store.snapshotFrom(5);
+        assertMessages(delta.getEvents(), "Message 5");
+        assertEquals(5, delta.getSequence(0));
+
+        assertMessages(store.drain(), "Message 2", "Message 3", "Message 4", "Message 5");
+        assertEquals(0, store.size());
+        assertEquals(0, store.getBlockCount());
+        store.add(createEvent("Message 6"));
+        assertEquals(6, store.snapshotFrom(0).getSequence(0), "Sequences are never reused");
+    }
+
+    @Test
+    void testIteratorIsAPointInTimeView() {
+        TieredEventStore store = new TieredEventStore(100, 2, 2);
+        for (int i = 0; i < 6; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        Iterator<LoggingEvent> events = store.iterator();
+        store.clear();
+        int count = 0;
+        while (events.hasNext()) {
+            assertEquals("Message " + count, events.next().getRenderedMessage());
+            count++;
+        }
+        assertEquals(6, count);
+    }
+
+    @Test
+    void testCompressionRatio() {
+        TieredEventStore store = new TieredEventStore(1000, 10, 100);
+        assertEquals(1.0, store.getCompressionRatio());
+        for (int i = 0; i < 500; i++) {
+            store.add(createEvent("Repetitive request handled in " + (i % 10) + "ms"));
+        }
+        assertTrue(store.getCompressionRatio() > 2, "Repetitive logs should compress well");
+        assertTrue(store.getCompressedBytes() > 0);
+    }
+
+    @Test
+    void testColdEvictionRecordsSkipDecoding() {
+        TieredEventStore store = new TieredEventStore(3, 1, 2);
+        List<Long> sequences = new ArrayList<>();
+        Logger logger = Logger.getLogger("TestLogger");
+        LoggingEvent first = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "Message 0",
+                new IllegalStateException("boom"));
+        long firstBytes = EventSizeEstimator.estimate(first);
+        store.setEvictionListener(new EventStore.EvictionListener() {
+            @Override
+            public void onEvict(LoggingEvent event) {
+                fail("Cold events should not be decoded to report their eviction");
+            }
+
+            @Override
+            public boolean needsEvictedEvents() {
+                return false;
+            }
+
+            @Override
+            public void onEvictRecord(long sequence, Level level, int messageChars, long estimatedBytes) {
+                sequences.add(sequence);
+                if (sequence == 0) {
+                    assertEquals(Level.WARN, level);
+                    assertEquals(9, messageChars);
+                    assertEquals(firstBytes, estimatedBytes, "The size counted when the event was added");
+                }
+            }
+        });
+
+        store.add(first);
+        for (int i = 1; i < 5; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        assertEquals(List.of(0L, 1L), sequences);
+        assertMessages(store.snapshot(), "Message 2", "Message 3", "Message 4");
+
+        MemAppender appender = new MemAppender(new TieredEventStore(2, 1, 1));
+        for (int i = 0; i < 5; i++) {
+            appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.ERROR, "Message " + i,
+                    new IllegalStateException("boom")));
+        }
+        assertEquals(3, appender.getDiscardedLogCount(Level.ERROR));
+        assertEquals(2 * firstBytes, appender.getRetainedBytes());
+    }
+
+    @Test
+    void testMemAppenderAndMonitorWithTieredStore() throws Exception {
+        MemAppender appender = MemAppender.createNewInstance(new TieredEventStore(5, 2, 2));
+        MemAppenderMonitor monitor = new MemAppenderMonitor(appender, "TieredMonitorTest");
+        Logger logger = Logger.getLogger("TestTieredStore");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+        logger.setLevel(Level.DEBUG);
+
+        for (int i = 0; i < 7; i++) {
+            logger.info("Message " + i);
+        }
+
+        assertEquals(5, appender.getCurrentSize());
+        assertEquals(2, appender.getDiscardedLogCount());
+        appender.setLayout(new VelocityLayout("$m"));
+        assertEquals(List.of("Message 2", "Message 3", "Message 4", "Message 5", "Message 6"),
+                appender.getEventStrings());
+        assertEquals(2, monitor.getAttribute("ColdCount"));
+        assertEquals(3, monitor.getAttribute("HotCount"));
+        assertTrue((Double) monitor.getAttribute("CompressionRatio") > 0);
+
+        appender.clear();
+        assertEquals(0, appender.getRetainedBytes());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+
+    @Test
+    void testCompressesOutsideTheLock() {
+        TieredEventStore store = new TieredEventStore(100, 2, 2);
+        // rendering the first event happens while its block is compressed
+        LoggingEvent first = new LoggingEvent(Logger.class.getName(), Logger.getLogger("TestLogger"),
+                Level.INFO, "Message 0", null) {
+            private boolean evicted;
+
+            @Override
+            public String getRenderedMessage() {
+                if (!evicted) {
+                    evicted = true;
+                    assertFalse(Thread.holdsLock(store), "Blocks are compressed without the store lock");
+                    assertTrue(store.evictOldest());
+                }
+                return super.getRenderedMessage();
+            }
+        };
+        store.add(first);
+        for (int i = 1; i < 4; i++) {
+            store.add(createEvent("Message " + i));
+        }
+
+        // Message 0 was evicted mid-seal, so it must not come back from the cold block
+        assertEquals(3, store.size());
+        assertEquals(1, store.getColdCount());
+        assertEquals(2, store.getHotCount());
+        assertMessages(store.snapshot(), "Message 1", "Message 2", "Message 3");
+    }
+
+    @Test
+    void testCloseEndsTheDeflater() {
+        TieredEventStore store = new TieredEventStore(100, 2, 2);
+        for (int i = 0; i < 4; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        store.close();
+        store.close();
+
+        // a closed store still seals, with a new deflater
+        for (int i = 4; i < 6; i++) {
+            store.add(createEvent("Message " + i));
+        }
+        assertEquals(4, store.getColdCount());
+        assertMessages(store.snapshot(), "Message 0", "Message 1", "Message 2", "Message 3", "Message 4", "Message 5");
+        store.close();
+    }
+}
@@ -2,12 +2,30 @@ package assign251_2;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.Level;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
 import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.Velocity;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static assign251_2.EventFixtures.createEvent;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Unit tests for VelocityLayout class
@@ -17,7 +35,7 @@ class VelocityLayoutTest {
     @Test
     void testDefaultPattern() {
         VelocityLayout layout = new VelocityLayout();
-        LoggingEvent event = createTestEvent();
+        LoggingEvent event = createEvent("Test message");
 
         String result = layout.format(event);
         assertTrue(result.contains("[INFO]"));
@@ -28,7 +46,7 @@ class VelocityLayoutTest {
     @Test
     void testCustomPattern() {
         VelocityLayout layout = new VelocityLayout("$p - $m$n");
-        LoggingEvent event = createTestEvent();
+        LoggingEvent event = createEvent("Test message");
 
         String result = layout.format(event);
         assertEquals("INFO - Test message" + System.lineSeparator(), result);
@@ -37,7 +55,7 @@ class VelocityLayoutTest {
     @Test
     void testAllVariables() {
         VelocityLayout layout = new VelocityLayout("$c|$d|$m|$p|$t$n");
-        LoggingEvent event = createTestEvent();
+        LoggingEvent event = createEvent("Test message");
 
         String result = layout.format(event);
         assertTrue(result.contains("TestLogger"));
@@ -51,7 +69,7 @@ class VelocityLayoutTest {
         VelocityLayout layout = new VelocityLayout();
         layout.setPattern("$m ($p)$n");
 
-        LoggingEvent event = createTestEvent();
+        LoggingEvent event = createEvent("Test message");
         String result = layout.format(event);
         assertEquals("Test message (INFO)" + System.lineSeparator(), result);
     }
@@ -81,9 +99,273 @@ class VelocityLayoutTest {
         logger.removeAllAppenders(); // Clean up
     }
 
-    private LoggingEvent createTestEvent() {
-        Logger logger = Logger.getLogger("TestLogger");
-        return new LoggingEvent("TestLogger", logger,
-                System.currentTimeMillis(), Level.INFO, "Test message", null);
+    @ParameterizedTest
+    @ValueSource(strings = {"$m$n", "[$p] $c $d: $m$n", "${c}|$!{t}|$!m|$d$n", "$p-$m", "100% $m.", "$m,$p"})
+    void testCompiledPatternMatchesVelocity(String pattern) {
+        VelocityLayout layout = new VelocityLayout(pattern);
+        LoggingEvent event = createEvent("Test message");
+        assertEquals(evaluateWithVelocity(pattern, event), layout.format(event));
+
+        LoggingEvent nullMessage = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                System.currentTimeMillis(), Level.WARN, null, null);
+        assertEquals(evaluateWithVelocity(pattern, nullMessage), layout.format(nullMessage));
+    }
+
+    @Test
+    void testDirectivesFallBackToVelocity() {
+        VelocityLayout layout = new VelocityLayout("#if($p == \"INFO\")info: #end$m");
+        assertFalse(layout.isCompiled(), "Directives need the Velocity engine");
+        assertEquals("info: Test message", layout.format(createEvent("Test message")));
+
+        layout.setPattern("$p: $m.length()");
+        assertFalse(layout.isCompiled(), "Method calls need the Velocity engine");
+        assertEquals("INFO: 12", layout.format(createEvent("Test message")));
+
+        layout.setPattern("$p: $m");
+        assertTrue(layout.isCompiled(), "Simple patterns should be compiled");
+        assertEquals("INFO: Test message", layout.format(createEvent("Test message")));
+    }
+
+    @Test
+    void testDirectivePatternRendersPerEvent() {
+        VelocityLayout layout = new VelocityLayout("#if($p == \"ERROR\")!! #end$p $m");
+        LoggingEvent error = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                System.currentTimeMillis(), Level.ERROR, "Failure", null);
+
+        // The cached template must be re-merged with each event's values
+        assertEquals("INFO Test message", layout.format(createEvent("Test message")));
+        assertEquals("!! ERROR Failure", layout.format(error));
+        assertEquals(evaluateWithVelocity("#macro(tag $x)<$x>#end#tag($p) $m", error),
+                new VelocityLayout("#macro(tag $x)<$x>#end#tag($p) $m").format(error));
+
+        layout.setPattern("#if($p == \"INFO\")info #end$m");
+        assertEquals("info Test message", layout.format(createEvent("Test message")));
+    }
+
+    @Test
+    void testConcurrentFormatWithCachedTemplate() throws InterruptedException {
+        VelocityLayout layout = new VelocityLayout("#if($p == \"INFO\")[i] #end$m");
+        LoggingEvent event = createEvent("Test message");
+        String expected = "[i] Test message";
+        AtomicInteger mismatches = new AtomicInteger();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (!expected.equals(layout.format(event))) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get(), "Concurrent formats should all render the same output");
+    }
+
+    @Test
+    void testInvalidPatternFallsBack() {
+        VelocityLayout layout = new VelocityLayout("#if($p $m");
+        String result = layout.format(createEvent("Test message"));
+        assertTrue(result.startsWith("[INFO] TestLogger"), "Parse errors should use the simple format");
+    }
+
+    @Test
+    void testEngineIsCreatedLazily() {
+        VelocityLayout compiled = new VelocityLayout("$p $m");
+        compiled.format(createEvent("Test message"));
+        assertFalse(compiled.isEngineInitialized(), "Compiled patterns should never need the engine");
+
+        VelocityLayout directive = new VelocityLayout("#if(true)$m#end");
+        assertFalse(directive.isEngineInitialized(), "Construction should not initialize the engine");
+        directive.warmUp();
+        assertTrue(directive.isEngineInitialized(), "warmUp should initialize the engine");
+        assertEquals("Test message", directive.format(createEvent("Test message")));
+    }
+
+    @Test
+    void testEnginesArePooledByConfiguration() {
+        Properties custom = VelocityEngines.defaultProperties();
+        custom.setProperty("directive.if.tostring.nullcheck", "false");
+
+        assertSame(VelocityEngines.get(VelocityEngines.defaultProperties()),
+                VelocityEngines.get(VelocityEngines.defaultProperties()));
+        assertNotSame(VelocityEngines.get(VelocityEngines.defaultProperties()),
+                VelocityEngines.get(custom));
+
+        VelocityLayout layout = new VelocityLayout("#if(true)$p#end", custom);
+        assertEquals("INFO", layout.format(createEvent("Test message")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"$m$n", "[$p] $c $d: $m$n", "${c}|$!{t}|$!x|$d$n", "#if($p == \"WARN\")!! #end$p $m"})
+    void testEncodeMatchesFormat(String pattern) {
+        VelocityLayout layout = new VelocityLayout(pattern);
+        LoggingEvent event = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                System.currentTimeMillis(), Level.WARN, "Caf\u00e9 \u20ac \ud83d\ude00 lone \ud800 end", null);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.put((byte) '>');
+
+        int written = layout.encode(event, buffer);
+        byte[] expected = layout.format(event).getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, written);
+        assertEquals(expected.length + 1, buffer.position());
+        byte[] actual = new byte[written];
+        buffer.flip().position(1);
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testEncodeOverflowLeavesBufferUnchanged() {
+        VelocityLayout layout = new VelocityLayout("[$p] $m$n");
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        buffer.put((byte) 'x');
+        assertThrows(BufferOverflowException.class, () -> layout.encode(createEvent("Test message"), buffer));
+        assertEquals(1, buffer.position(), "A partly written event should be dropped");
+        assertThrows(IllegalArgumentException.class, () -> layout.encode(createEvent("Test message"), null));
+    }
+
+    @Test
+    void testEncodeIsGarbageFree() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters not available");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled(),
+                "Allocation counters not enabled");
+
+        VelocityLayout layout = new VelocityLayout("[$p] $c $t $d: $m$n");
+        layout.setDateFormat("ISO8601");
+        LoggingEvent event = createEvent("Test message");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int i = 0; i < 20000; i++) { // let the JIT settle
+            buffer.clear();
+            layout.encode(event, buffer);
+        }
+
+        int events = 100000;
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < events; i++) {
+            buffer.clear();
+            layout.encode(event, buffer);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(allocated / (double) events < 1.0,
+                "Encoding should not allocate per event, got " + allocated + " bytes for " + events + " events");
+    }
+
+    @Test
+    void testDateFormat() {
+        VelocityLayout layout = new VelocityLayout("$d $m");
+        LoggingEvent event = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                1700000000123L, Level.INFO, "Test message", null);
+        assertEquals("DEFAULT", layout.getDateFormat());
+        assertEquals(new Date(1700000000123L) + " Test message", layout.format(event));
+
+        layout.setDateFormat("EPOCH");
+        assertEquals("1700000000123 Test message", layout.format(event));
+
+        layout.setDateFormat("ss.SSS");
+        assertEquals("20.123 Test message", layout.format(event));
+        assertEquals("ss.SSS", layout.getDateFormat());
+
+        // the Velocity path renders the same text
+        layout.setPattern("#if(true)$d#end $m");
+        assertFalse(layout.isCompiled());
+        assertEquals("20.123 Test message", layout.format(event));
+
+        layout.setDateFormat(null);
+        assertEquals("1700000000123", new VelocityLayout("#if(true)$d.time#end").format(event),
+                "The default format keeps $d a Date in Velocity templates");
+        assertThrows(IllegalArgumentException.class, () -> layout.setDateFormat("{bad"));
+    }
+
+    @Test
+    void testMdcNdcAndThrowableVariables() {
+        LoggingEvent event = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                System.currentTimeMillis(), Level.ERROR, "Failed", "main",
+                new ThrowableInformation(new String[] {"java.lang.Error: boom", "\tat X"}), "request-7", null,
+                Map.of("user", "alice"));
+        String separator = System.lineSeparator();
+        String expected = "alice [request-7] | Failed" + separator
+                + "java.lang.Error: boom" + separator + "\tat X" + separator;
+
+        VelocityLayout layout = new VelocityLayout("$X{user}$X{missing} [$x] | $m$n$throwable");
+        assertTrue(layout.isCompiled(), "MDC, NDC and throwable references should be compiled");
+        assertEquals(expected, layout.format(event));
+        assertFalse(layout.ignoresThrowable(), "The pattern renders the throwable itself");
+
+        layout.setPattern("#if(true)$X{user}$X{missing} [$x] | $m$n$throwable#end");
+        assertFalse(layout.isCompiled());
+        assertEquals(expected, layout.format(event), "Velocity should render the same variables");
+        assertEquals("alice", new VelocityLayout("#if(true)$X.user#end").format(event));
+
+        assertEquals("Test message []", new VelocityLayout("$m [$x$throwable]").format(createEvent("Test message")));
+        assertTrue(new VelocityLayout("$m$n").ignoresThrowable());
+    }
+
+    @Test
+    void testMdcAndNdcAreCapturedOnAppend() {
+        MemAppender appender = MemAppender.createNewInstance(new java.util.ArrayList<>());
+        appender.setLayout(new VelocityLayout("$X{user} $x $m"));
+        Logger logger = Logger.getLogger("TestDiagnosticContext");
+        logger.removeAllAppenders();
+        logger.addAppender(appender);
+
+        MDC.put("user", "bob");
+        NDC.push("outer");
+        try {
+            logger.info("inside");
+        } finally {
+            MDC.remove("user");
+            NDC.remove();
+        }
+        assertEquals(List.of("bob outer inside"), appender.getEventStrings(),
+                "Buffered events should keep the context of the logging thread");
+        appender.setLayout(new VelocityLayout("#if(true)$X{user} $x#end"));
+        assertEquals(List.of("bob outer"), appender.getEventStrings());
+
+        logger.removeAllAppenders(); // Clean up
+    }
+
+    @Test
+    void testVelocityContextIsPopulatedLazily() {
+        AtomicInteger lookups = new AtomicInteger();
+        LoggingEvent event = new LoggingEvent("TestLogger", Logger.getLogger("TestLogger"),
+                System.currentTimeMillis(), Level.INFO, "Test message", null) {
+            @Override
+            public String getThreadName() {
+                lookups.incrementAndGet();
+                return super.getThreadName();
+            }
+        };
+
+        VelocityLayout layout = new VelocityLayout("#if($p == \"INFO\")$m#end");
+        assertEquals("Test message", layout.format(event));
+        assertEquals(0, lookups.get(), "Variables the template never reads should not be computed");
+
+        layout.setPattern("#if($p == \"INFO\")$t/$t#end");
+        layout.format(event);
+        assertEquals(1, lookups.get(), "Each variable should be resolved at most once per event");
+
+        layout.setPattern("#set($m = \"replaced\")$m");
+        assertEquals("replaced", layout.format(event));
+    }
+
+    private String evaluateWithVelocity(String pattern, LoggingEvent event) {
+        VelocityContext context = new VelocityContext();
+        context.put("c", event.getLoggerName());
+        context.put("d", new Date(event.timeStamp));
+        context.put("m", event.getRenderedMessage());
+        context.put("p", event.getLevel().toString());
+        context.put("t", event.getThreadName());
+        context.put("n", System.lineSeparator());
+        StringWriter writer = new StringWriter();
+        Velocity.evaluate(context, writer, "VelocityLayoutTest", pattern);
+        return writer.toString();
     }
 }
\ No newline at end of file